@@ -0,0 +1,68 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A future over several ESLint runs, the value is the highest exit code.
+ *
+ * @author jocke
+ */
+final class BatchFuture implements Future<Integer> {
+
+    private final List<Future<Integer>> futures;
+
+    BatchFuture(List<Future<Integer>> futures) {
+        this.futures = new ArrayList<>(futures);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = false;
+
+        for (Future<Integer> future : futures) {
+            cancelled |= future.cancel(mayInterruptIfRunning);
+        }
+
+        return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return futures.stream().anyMatch(Future::isCancelled);
+    }
+
+    @Override
+    public boolean isDone() {
+        return futures.stream().allMatch(Future::isDone);
+    }
+
+    @Override
+    public Integer get() throws InterruptedException, ExecutionException {
+        int result = 0;
+
+        for (Future<Integer> future : futures) {
+            Integer value = future.get();
+            result = Math.max(result, value != null ? value : 0);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int result = 0;
+
+        for (Future<Integer> future : futures) {
+            Integer value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            result = Math.max(result, value != null ? value : 0);
+        }
+
+        return result;
+    }
+}
@@ -2,18 +2,37 @@ package se.jocke.nb.eslint;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.netbeans.api.extexecution.base.BaseExecutionDescriptor;
 import org.netbeans.api.extexecution.base.BaseExecutionService;
 import org.netbeans.api.extexecution.base.ProcessBuilder;
+import org.netbeans.api.extexecution.base.input.InputProcessor;
 import org.netbeans.api.extexecution.base.input.InputProcessors;
 import org.netbeans.api.options.OptionsDisplayer;
 import org.netbeans.api.project.FileOwnerQuery;
@@ -23,10 +42,13 @@ import org.openide.*;
 import org.openide.awt.NotificationDisplayer;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
-import org.openide.util.Exceptions;
+import org.openide.util.RequestProcessor;
 import org.openide.util.Utilities;
 import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.FileResult;
 import se.jocke.nb.eslint.error.LintError;
+import se.jocke.nb.eslint.task.ESLintIgnore;
+import se.jocke.nb.eslint.ui.options.ESLintOptions;
 import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
 import se.jocke.nb.eslint.ui.options.ESLintOptionsPanelController;
 
@@ -39,6 +61,17 @@ public class ESLint {
     private static final Logger LOG = Logger.getLogger(ESLint.class.getName());
     public static final String ESLINT_CLI_NAME;
 
+    private static final InFlightRuns IN_FLIGHT = new InFlightRuns((run, priority) -> LintScheduler.getDefault().raise(run, priority));
+    private static final RequestProcessor SHARDS = new RequestProcessor("ESLint scan", Runtime.getRuntime().availableProcessors(), true); // NOI18N
+    // cmd.exe stops at 8191 characters, elsewhere stay well below ARG_MAX
+    private static final int MAX_COMMAND_LINE = Utilities.isWindows() ? 8000 : 100000;
+    private static final int ARGUMENTS_LENGTH = " --config  --format json".length();
+    private static final int CACHE_ARGUMENTS_LENGTH = " --cache --cache-location  --cache-strategy content".length();
+    private static final String[] CONFIG_FILES = {
+        ".eslintrc", ".eslintrc.js", ".eslintrc.cjs", ".eslintrc.json", ".eslintrc.yaml", ".eslintrc.yml", // NOI18N
+        "eslint.config.js", ".eslintignore", "package.json" // NOI18N
+    };
+
     static {
         if (Utilities.isWindows()) {
             ESLINT_CLI_NAME = "eslint.cmd"; // NOI18N
@@ -47,124 +80,847 @@ public class ESLint {
         }
     }
 
-    public Future<Integer> verify(final FileObject fileObject, final ErrorReporter reporter) {
-        if (ESLintOptionsModel.getDefault().getESLintConfigOption().equals("manual")) {
-            String command = ESLintOptionsModel.getDefault().getESLintPathOption();
+    /**
+     * Lint a file or, with ESLint's own file discovery, a folder.
+     *
+     * @param fileObject the file or folder
+     * @param priority how urgent the run is compared to other runs
+     * @param reporter receives the results
+     * @return the run
+     */
+    public Future<Integer> verify(final FileObject fileObject, final LintPriority priority, final ErrorReporter reporter) {
+        final ESLintOptions options = ESLintOptionsModel.getDefault().getSnapshot();
 
-            BaseExecutionDescriptor descriptor = new BaseExecutionDescriptor();
+        if (options.isManual()) {
+            final String command = options.getESLintPath();
 
-            descriptor = descriptor.errProcessorFactory(() -> InputProcessors.bridge(new LineProcessorAdapter() {
-                @Override
-                public void processLine(String string) {
-                    ErrorManager.getDefault().log(string);
-                }
-            }));
-
-            descriptor = descriptor.outProcessorFactory(() -> InputProcessors.bridge(new LineProcessorAdapter() {
-                @Override
-                public void processLine(String string) {
-                    try {
-                        final JSONParser jsonParser = new JSONParser();
-                        final JSONArray jsonArray = (JSONArray) jsonParser.parse(string);
-
-                        JSONObject lintObject = (JSONObject) jsonArray.get(0);
-                        String filePath = lintObject.get("filePath").toString();
-
-                        if (filePath.equals(FileUtil.toFile(fileObject).getAbsolutePath())) {
-                            JSONArray messages = (JSONArray) lintObject.get("messages");
-
-                            for (Object lintMessage : messages) {
-                                String file = filePath;
-                                int line = Integer.parseInt(((JSONObject) lintMessage).get("line").toString());
-                                int columnStart = Integer.parseInt(((JSONObject) lintMessage).get("column").toString());
-                                int columnEnd = Integer.parseInt(((JSONObject) lintMessage).get("endColumn").toString());
-                                String message = ((JSONObject) lintMessage).get("message").toString();
-                                int severity = Integer.parseInt(((JSONObject) lintMessage).get("severity").toString());
-
-                                reporter.handle(new LintError(file, line, columnStart, columnEnd, severity, message));
-                            }
-                        }
-                    } catch (ParseException ex) {
-                        Exceptions.printStackTrace(ex);
+            if (!command.isEmpty()) {
+                final String workingDirectory = fileObject.isFolder() ? FileUtil.toFile(fileObject).getAbsolutePath() : findWorkingDirectory(fileObject);
+                final String target = fileObject.isFolder() ? "." : FileUtil.toFile(fileObject).getAbsolutePath();
+
+                final String fingerprint = fingerprint(command, workingDirectory);
+                final ResultStore store = findStore(fileObject);
+
+                if (fileObject.isFolder()) {
+                    final long started = System.currentTimeMillis();
+                    final ErrorReporter runReporter = ResultCache.getDefault().recording(reporter, store, path -> ResultCache.hashUnmodifiedSince(path, started), fingerprint);
+                    final File cache = ESLintCache.get(command, workingDirectory, fingerprint);
+                    final ESLintDaemon daemon = findDaemon(command, workingDirectory);
+
+                    if (daemon != null) {
+                        return daemon.verify(Collections.singletonList(target), null, findConfig(), cache, fingerprint, priority, RunType.SCAN.getTimeout(options), runReporter);
                     }
+
+                    return execute(command, workingDirectory, Collections.singletonList(target), null, cache, priority, RunType.SCAN, fileObject, runReporter);
                 }
 
-                @Override
-                public void close() {
-                    LOG.log(Level.FINE, "Scanning done");
-                    reporter.done();
+                final Long hash = ResultCache.hash(Paths.get(target));
+
+                if (hash == null) {
+                    return lintFile(command, workingDirectory, target, null, fileObject, priority, reporter);
                 }
 
-            }));
+                final Future<Integer> cached = replay(target, hash, fingerprint, store, reporter);
+
+                if (cached != null) {
+                    return cached;
+                }
+
+                return IN_FLIGHT.join(fingerprint + '\0' + target + '\0' + hash, priority, reporter, shared -> lintFile(command, workingDirectory, target, null, fileObject, priority,
+                        ResultCache.getDefault().recording(shared, store, Collections.singletonMap(target, hash)::get, fingerprint)));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lint content of a file that has not been saved yet. The text is passed
+     * on stdin while config and ignore files are resolved against the path of
+     * the file, nothing is written to disk and the result is not stored in
+     * the project. The run has editor priority.
+     *
+     * @param fileObject the file the text belongs to
+     * @param text the current content, e.g. of the editor document
+     * @param reporter receives the results
+     * @return the run
+     */
+    public Future<Integer> verify(final FileObject fileObject, final String text, final ErrorReporter reporter) {
+        final ESLintOptions options = ESLintOptionsModel.getDefault().getSnapshot();
 
-            final ProcessBuilder builder = ProcessBuilder.getLocal();
+        if (options.isManual()) {
+            final String command = options.getESLintPath();
 
             if (!command.isEmpty()) {
-                if (fileObject.isFolder()) {
-                    builder.setWorkingDirectory(FileUtil.toFile(fileObject).getAbsolutePath());
-                } else {
-                    final Project owner = FileOwnerQuery.getOwner(fileObject);
+                final String workingDirectory = findWorkingDirectory(fileObject);
+                final String target = FileUtil.toFile(fileObject).getAbsolutePath();
 
-                    if (owner != null) {
-                        Project project = ProjectUtils.getInformation(owner).getProject();
+                final String fingerprint = fingerprint(command, workingDirectory);
+                final long hash = ResultCache.hash(text);
+                final ResultStore store = findStore(fileObject);
+                final Future<Integer> cached = replay(target, hash, fingerprint, store, reporter);
 
-                        if (project != null) {
-                            FileObject projectDirectory = project.getProjectDirectory();
-                            builder.setWorkingDirectory(projectDirectory.getPath());
-                        }
-                    }
+                if (cached != null) {
+                    return cached;
                 }
 
-                BaseExecutionService service = null;
+                // Same key as the file on disk, saving the text shares the run. The result of
+                // unsaved text is only kept in memory, it must not replace the one of the saved file
+                return IN_FLIGHT.join(fingerprint + '\0' + target + '\0' + hash, LintPriority.OPEN_EDITOR, reporter, shared -> lintFile(command, workingDirectory, target, text, fileObject, LintPriority.OPEN_EDITOR,
+                        ResultCache.getDefault().recording(shared, null, Collections.singletonMap(target, hash)::get, fingerprint)));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lint a single file, from disk or the given text.
+     */
+    private Future<Integer> lintFile(String command, String workingDirectory, String target, String text, FileObject fileObject,
+            LintPriority priority, ErrorReporter reporter) {
+        final ESLintDaemon daemon = findDaemon(command, workingDirectory);
+        final RunType type = RunType.of(priority, 1);
+
+        if (daemon != null) {
+            return daemon.verify(Collections.singletonList(target), text, findConfig(), null, fingerprint(command, workingDirectory), priority, type.getTimeout(ESLintOptionsModel.getDefault().getSnapshot()), reporter);
+        }
+
+        if (text != null) {
+            return execute(command, workingDirectory, Collections.singletonList(target), text, null, priority, type, fileObject, reporter);
+        }
+
+        // Linted together with other files of the project if many runs are queued
+        return LintScheduler.getDefault().submit(priority, fileObject, workingDirectory, target, reporter,
+                (paths, batchReporter) -> startCollapsed(command, workingDirectory, paths, priority, batchReporter));
+    }
+
+    /**
+     * Lint many files with as few ESLint runs as possible. Files are grouped by
+     * project, every group is split into shards that run in parallel and
+     * every shard into chunks that stay within the command line length limit
+     * of the OS. The reporter is told done once, after the last chunk.
+     *
+     * @param fileObjects the files to lint
+     * @param priority how urgent the runs are compared to other runs
+     * @param reporter receives the results file by file
+     * @return the runs, the value is the highest exit code of all runs
+     */
+    public Future<Integer> verify(final Collection<FileObject> fileObjects, final LintPriority priority, final ErrorReporter reporter) {
+        final ESLintOptions options = ESLintOptionsModel.getDefault().getSnapshot();
+
+        if (options.isManual()) {
+            final String command = options.getESLintPath();
+
+            if (!command.isEmpty() && !fileObjects.isEmpty()) {
+                final Map<String, List<String>> groups = new LinkedHashMap<>();
+                final Map<String, ResultStore> stores = new HashMap<>();
+
+                for (FileObject fileObject : fileObjects) {
+                    final String workingDirectory = findWorkingDirectory(fileObject);
+
+                    stores.computeIfAbsent(workingDirectory, dir -> findStore(fileObject));
+                    groups.computeIfAbsent(workingDirectory, dir -> new ArrayList<>()).add(FileUtil.toFile(fileObject).getAbsolutePath());
+                }
+
+                return verify(command, groups, stores, options.getScanShards(), priority, reporter);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lint a project. The files to lint are listed up front, skipping ignored
+     * directories, and compared with the manifest of the last scan. Files with
+     * the size and modification time of the last scan are not read again and
+     * only new or changed files are linted, unless the ESLint setup changed
+     * since. The stored results of unchanged files, also those of the last
+     * session, are reported before anything is linted. The others are linted
+     * as a batch, by the daemon if it is used, otherwise split into shards in
+     * sharded mode so that all cores are used.
+     * Scans run with background priority.
+     *
+     * @param folder the project directory
+     * @param reporter receives the results file by file
+     * @return the runs, the value is the highest exit code of all runs
+     */
+    public Future<Integer> scan(final FileObject folder, final ErrorReporter reporter) {
+        final ESLintOptions options = ESLintOptionsModel.getDefault().getSnapshot();
+
+        if (options.isManual()) {
+            final String command = options.getESLintPath();
+            final File root = FileUtil.toFile(folder);
+
+            if (!command.isEmpty() && root != null) {
+                final Map<String, BasicFileAttributes> files;
+
+                try {
+                    files = findLintedFiles(root.toPath(), ESLintIgnore.get(folder), options);
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "Failed to list files of " + root, ex);
+                    return verify(folder, LintPriority.BACKGROUND, reporter);
+                }
+
+                return scan(command, root.getAbsolutePath(), files, findStore(folder), options.isShardedScan() ? options.getScanShards() : 1, reporter);
+            }
+        }
+
+        return null;
+    }
+
+    private Future<Integer> scan(String command, String workingDirectory, Map<String, BasicFileAttributes> files,
+            ResultStore store, int shards, ErrorReporter reporter) {
+        final ScanManifest manifest = ScanManifest.get(workingDirectory);
+        final String fingerprint = fingerprint(command, workingDirectory);
+        final boolean full = !fingerprint.equals(manifest.getFingerprint());
+        final Map<String, ScanManifest.FileState> states = new HashMap<>();
+        final List<String> stale = new ArrayList<>();
+        final List<FileResult> cached = new ArrayList<>();
+        int changed = 0;
+
+        for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+            final String path = file.getKey();
+            final long size = file.getValue().size();
+            final long lastModified = file.getValue().lastModifiedTime().toMillis();
+            Long hash = full ? null : manifest.hash(path, size, lastModified);
+
+            if (hash == null) {
+                hash = ResultCache.hash(Paths.get(path));
+                changed++;
+            }
+
+            if (hash == null) {
+                stale.add(path);
+                continue;
+            }
+
+            states.put(path, new ScanManifest.FileState(size, lastModified, hash));
+
+            // A touched file with the same content still has its result
+            final FileResult result = full ? null : ResultCache.getDefault().get(path, hash, fingerprint, store);
+
+            if (result != null) {
+                // Shown right away, not after the lint of the changed files
+                report(result, reporter);
+                cached.add(result);
+            } else {
+                stale.add(path);
+            }
+        }
+
+        final Set<String> deleted = manifest.paths();
+        deleted.removeAll(files.keySet());
 
-                builder.setExecutable(command.trim());
+        if (store != null) {
+            store.remove(deleted);
+        }
+
+        if (full) {
+            LOG.log(Level.INFO, "Full scan of {0}, the ESLint setup changed", workingDirectory);
+        } else {
+            LOG.log(Level.INFO, "Scan of {0}: {1} files, {2} new or changed, {3} deleted, {4} to lint",
+                    new Object[]{workingDirectory, files.size(), changed, deleted.size(), stale.size()});
+        }
+
+        final ErrorReporter scanReporter = new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                reporter.handle(error);
+            }
+
+            @Override
+            public void fileDone(String file) {
+                reporter.fileDone(file);
+            }
+
+            @Override
+            public void done() {
+                // Deleted files are left out, the next scan does not expect them
+                manifest.save(fingerprint, states);
+                reporter.done();
+            }
+
+            @Override
+            public void timedOut(long timeout) {
+                // Files without a result are linted again since the result cache misses them
+                manifest.save(fingerprint, states);
+                reporter.timedOut(timeout);
+            }
+        };
+
+        if (stale.isEmpty()) {
+            scanReporter.done();
+            return CompletableFuture.completedFuture(exitCode(cached));
+        }
+
+        return lint(command, Collections.singletonMap(workingDirectory, stale), Collections.singletonMap(workingDirectory, store),
+                Collections.singletonMap(workingDirectory, fingerprint), path -> {
+                    final ScanManifest.FileState state = states.get(path);
+                    return state != null ? state.getHash() : null;
+                }, shards, LintPriority.BACKGROUND, scanReporter);
+    }
+
+    /**
+     * List the files below the root that match the file extensions option and
+     * are not ignored, with their attributes. Ignored and hidden directories
+     * are not entered.
+     */
+    static Map<String, BasicFileAttributes> findLintedFiles(final Path root, final ESLintIgnore ignore, final ESLintOptions options) throws IOException {
+        final Map<String, BasicFileAttributes> files = new LinkedHashMap<>();
 
-                final String config = findConfig();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                final boolean skip = dir.getFileName().toString().startsWith(".") || ignore.isIgnored(relativize(dir), true);
 
-                if (config.isEmpty()) {
-                    LOG.log(Level.INFO, "Using project related config");
-                } else {
-                    LOG.log(Level.INFO, "Using custom config: {0}", config);
-                    builder.setArguments(Arrays.asList(
-                            "--config",
-                            config));
+                return skip ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && options.isLintedFile(file.getFileName().toString()) && !ignore.isIgnored(relativize(file), false)) {
+                    files.put(file.toAbsolutePath().toString(), attrs);
                 }
 
-                builder.setArguments(Arrays.asList("--format",
-                        "json",
-                        fileObject.isFolder() ? "." : FileUtil.toFile(fileObject).getAbsolutePath()
-                ));
-
-                LOG.log(Level.INFO, "Running command {0}", command);
-
-                service = BaseExecutionService.newService(() -> {
-                    try {
-                        return builder.call();
-                    } catch (IOException err) {
-                        NotificationDisplayer.getDefault().notify("ESLint Error: Check the options", NotificationDisplayer.Priority.HIGH.getIcon(), "There is a problem while using ESLint, please check your options while clicking here. Probably the path to the ESLint CLI is not correct.", new ActionListener() {
-                            @Override
-                            public void actionPerformed(ActionEvent arg0) {
-                                OptionsDisplayer.getDefault().open(ESLintOptionsPanelController.OPTIONS_PATH);
-                            }
-                        });
-
-                        return null;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                LOG.log(Level.FINE, "Can not visit {0}", file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String relativize(Path path) {
+                return root.relativize(path).toString().replace(File.separatorChar, '/');
+            }
+        });
+
+        return files;
+    }
+
+    private Future<Integer> verify(String command, Map<String, List<String>> groups, Map<String, ResultStore> stores, int shards,
+            LintPriority priority, ErrorReporter reporter) {
+        final Map<String, String> fingerprints = new HashMap<>();
+        final Map<String, List<String>> stale = new LinkedHashMap<>();
+        final Map<String, Long> hashes = new HashMap<>();
+        final List<FileResult> cached = new ArrayList<>();
+        int files = 0;
+
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            final String fingerprint = fingerprint(command, group.getKey());
+            fingerprints.put(group.getKey(), fingerprint);
+
+            for (String path : group.getValue()) {
+                final Long hash = ResultCache.hash(Paths.get(path));
+                files++;
+
+                if (hash != null) {
+                    final FileResult result = ResultCache.getDefault().get(path, hash, fingerprint, stores.get(group.getKey()));
+
+                    if (result != null) {
+                        cached.add(result);
+                        continue;
                     }
-                }, descriptor);
 
-                return service.run();
+                    hashes.put(path, hash);
+                }
+
+                stale.computeIfAbsent(group.getKey(), dir -> new ArrayList<>()).add(path);
+            }
+        }
+
+        cached.forEach(result -> report(result, reporter));
+
+        if (stale.isEmpty()) {
+            LOG.log(Level.FINE, "All {0} files served from the result cache", cached.size());
+            reporter.done();
+            return CompletableFuture.completedFuture(exitCode(cached));
+        }
+
+        LOG.log(Level.FINE, "Served {0} of {1} files from the result cache", new Object[]{cached.size(), files});
+
+        return lint(command, stale, stores, fingerprints, hashes::get, shards, priority, reporter);
+    }
+
+    /**
+     * Lint the files of every working directory, split into shards that run
+     * in parallel and chunks that fit on a command line.
+     */
+    private Future<Integer> lint(String command, Map<String, List<String>> stale, Map<String, ResultStore> stores,
+            Map<String, String> fingerprints, Function<String, Long> hashes, int shards, LintPriority priority, ErrorReporter reporter) {
+        final List<Shard> plan = new ArrayList<>();
+        int runs = 0;
+
+        for (Map.Entry<String, List<String>> group : stale.entrySet()) {
+            final String workingDirectory = group.getKey();
+            final String fingerprint = fingerprints.get(workingDirectory);
+            final ESLintDaemon daemon = findDaemon(command, workingDirectory);
+
+            if (daemon != null) {
+                // One worker per project, sharding would only queue up
+                plan.add(new Shard(workingDirectory, daemon, ESLintCache.get(command, workingDirectory, fingerprint),
+                        Collections.singletonList(group.getValue())));
+                runs++;
+            } else {
+                final List<List<String>> groupShards = shard(group.getValue(), shards);
+
+                for (int i = 0; i < groupShards.size(); i++) {
+                    // ESLint does not lock its cache file, every shard that may run at the same time needs its own
+                    final File cache = ESLintCache.get(command, workingDirectory, i == 0 ? "" : "shard" + i + "of" + groupShards.size(), fingerprint);
+                    final int fixedLength = ESLintExecutable.resolve(command, workingDirectory).getCommandLine().length() + findConfig().length() + ARGUMENTS_LENGTH
+                            + cache.getAbsolutePath().length() + CACHE_ARGUMENTS_LENGTH;
+
+                    final List<List<String>> chunks = chunk(groupShards.get(i), fixedLength, MAX_COMMAND_LINE);
+
+                    plan.add(new Shard(workingDirectory, null, cache, chunks));
+                    runs += chunks.size();
+                }
+            }
+        }
+
+        final BatchReporter batchReporter = new BatchReporter(reporter, runs);
+        final List<Future<Integer>> futures = new ArrayList<>(plan.size());
+
+        for (Shard shard : plan) {
+            final ErrorReporter shardReporter = ResultCache.getDefault().recording(batchReporter, stores.get(shard.workingDirectory), hashes, fingerprints.get(shard.workingDirectory));
+
+            if (shard.daemon != null) {
+                futures.add(shard.daemon.verify(shard.chunks.get(0), null, findConfig(), shard.cache, fingerprints.get(shard.workingDirectory), priority,
+                        RunType.SCAN.getTimeout(ESLintOptionsModel.getDefault().getSnapshot()), shardReporter));
+            } else if (shard.chunks.size() == 1) {
+                futures.add(execute(command, shard.workingDirectory, shard.chunks.get(0), null, shard.cache, priority, RunType.SCAN, null, shardReporter));
+            } else {
+                futures.add(runChunks(shard.chunks, chunk -> execute(command, shard.workingDirectory, chunk, null, shard.cache, priority, RunType.SCAN, null, shardReporter)));
+            }
+        }
+
+        LOG.log(Level.INFO, "Linting {0} files in {1} runs, {2} shards", new Object[]{stale.values().stream().mapToInt(List::size).sum(), runs, plan.size()});
+
+        return new BatchFuture(futures);
+    }
+
+    /**
+     * Start the run of files collapsed by the scheduler, in chunks if they do
+     * not fit on one command line. It already has its slot, the chunks are
+     * not queued again.
+     */
+    private Future<Integer> startCollapsed(String command, String workingDirectory, List<String> paths, LintPriority priority, ErrorReporter reporter) {
+        final int fixedLength = ESLintExecutable.resolve(command, workingDirectory).getCommandLine().length() + findConfig().length() + ARGUMENTS_LENGTH;
+        final List<List<String>> chunks = chunk(paths, fixedLength, MAX_COMMAND_LINE);
+
+        if (chunks.size() == 1) {
+            return start(command, workingDirectory, paths, null, null, RunType.of(priority, paths.size()), reporter);
+        }
+
+        final BatchReporter batchReporter = new BatchReporter(reporter, chunks.size());
+
+        return runChunks(chunks, chunk -> start(command, workingDirectory, chunk, null, null, RunType.of(priority, chunk.size()), batchReporter));
+    }
+
+    /**
+     * Run chunks one after the other.
+     */
+    private static Future<Integer> runChunks(final List<List<String>> chunks, final Function<List<String>, Future<Integer>> runner) {
+        return SHARDS.submit(() -> {
+            int exitCode = 0;
+
+            for (List<String> chunk : chunks) {
+                final Future<Integer> run = runner.apply(chunk);
+
+                try {
+                    final Integer value = run.get();
+                    exitCode = Math.max(exitCode, value != null ? value : 0);
+                } catch (InterruptedException ex) {
+                    run.cancel(true);
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.WARNING, "ESLint run failed", ex);
+                    exitCode = Math.max(exitCode, 2);
+                }
+            }
+
+            return exitCode;
+        });
+    }
+
+    /**
+     * Split paths into at most the given number of shards. A path always goes
+     * to the same shard as long as the number of shards is the same, which
+     * keeps the ESLint cache of every shard useful.
+     */
+    static List<List<String>> shard(List<String> paths, int shards) {
+        final int count = Math.max(1, Math.min(shards, paths.size()));
+        final List<List<String>> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            result.add(new ArrayList<>());
+        }
+
+        for (String path : paths) {
+            result.get(Math.floorMod(path.hashCode(), count)).add(path);
+        }
+
+        result.removeIf(List::isEmpty);
+
+        return result;
+    }
+
+    /**
+     * Split paths into chunks whose joined length, including the fixed part of
+     * the command line, does not exceed the limit. A path longer than the limit
+     * gets a chunk of its own.
+     */
+    static List<List<String>> chunk(List<String> paths, int fixedLength, int limit) {
+        final List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int length = fixedLength;
+
+        for (String path : paths) {
+            // a space and quotes around each argument
+            int pathLength = path.length() + 3;
+
+            if (!chunk.isEmpty() && length + pathLength > limit) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                length = fixedLength;
             }
+
+            chunk.add(path);
+            length += pathLength;
+        }
+
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    private Future<Integer> replay(String path, long hash, String fingerprint, ResultStore store, ErrorReporter reporter) {
+        final FileResult result = ResultCache.getDefault().get(path, hash, fingerprint, store);
+
+        if (result == null) {
+            return null;
+        }
+
+        LOG.log(Level.FINE, "Serving {0} from the result cache", path);
+
+        report(result, reporter);
+        reporter.done();
+
+        return CompletableFuture.completedFuture(exitCode(Collections.singletonList(result)));
+    }
+
+    private static int exitCode(List<FileResult> results) {
+        return results.stream().anyMatch(FileResult::hasErrors) ? 1 : 0;
+    }
+
+    private static void report(FileResult result, ErrorReporter reporter) {
+        result.report(reporter);
+        reporter.fileDone(result.getPath());
+    }
+
+    /**
+     * Identifies the setup a result was produced with: the CLI, the custom
+     * config and the state of the config files in the working directory.
+     * Nested config files are not covered.
+     */
+    private String fingerprint(String command, String workingDirectory) {
+        final StringBuilder fingerprint = new StringBuilder(command);
+        final String config = findConfig();
+
+        // The version of the eslint package that will run, also a local one
+        fingerprint.append('\0').append(ESLintExecutable.resolve(command, workingDirectory).getVersion());
+        fingerprint.append('\0').append(config);
+
+        if (!config.isEmpty()) {
+            fingerprint.append('\0').append(new File(config).lastModified());
+        }
+
+        if (workingDirectory != null) {
+            for (String name : CONFIG_FILES) {
+                fingerprint.append('\0').append(new File(workingDirectory, name).lastModified());
+            }
+        }
+
+        return fingerprint.toString();
+    }
+
+    private ESLintDaemon findDaemon(String command, String workingDirectory) {
+        if (ESLintOptionsModel.getDefault().getSnapshot().isUseDaemon()) {
+            ESLintDaemon daemon = ESLintDaemon.get(command, workingDirectory);
+
+            if (daemon == null) {
+                LOG.log(Level.INFO, "ESLint daemon not available, running {0} once", command);
+            }
+
+            return daemon;
         }
 
         return null;
     }
 
-    private String findConfig() {
-        if (ESLintOptionsModel.getDefault().getUseCustomConfigOption()) {
-            return ESLintOptionsModel.getDefault().getCustomConfigPathOption();
+    /**
+     * Queue an ESLint process with the scheduler, it starts once the
+     * priority and the number of running processes allow it.
+     *
+     * @param type decides the timeout of the run
+     * @param file the file of an editor run or {@code null}
+     */
+    private Future<Integer> execute(String command, String workingDirectory, List<String> targets, String text, File cache,
+            LintPriority priority, RunType type, FileObject file, ErrorReporter reporter) {
+        return LintScheduler.getDefault().submit(priority, file, () -> start(command, workingDirectory, targets, text, cache, type, reporter));
+    }
+
+    private LintRun start(String command, String workingDirectory, List<String> targets, final String text, File cache, RunType type, final ErrorReporter reporter) {
+        final LintRun run = new LintRun(reporter, type.getTimeout(ESLintOptionsModel.getDefault().getSnapshot()));
+
+        BaseExecutionDescriptor descriptor = new BaseExecutionDescriptor();
+
+        descriptor = descriptor.errProcessorFactory(() -> InputProcessors.bridge(new LineProcessorAdapter() {
+            @Override
+            public void processLine(String string) {
+                ErrorManager.getDefault().log(string);
+            }
+        }));
+
+        descriptor = descriptor.outProcessorFactory(() -> new InputProcessor() {
+            private final ESLintOutputParser parser = new ESLintOutputParser(new ReportingHandler(run.reporter()));
+
+            @Override
+            public void processInput(char[] chars) {
+                parser.parse(chars, 0, chars.length);
+            }
+
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public void close() {
+                parser.end();
+                LOG.log(Level.FINE, "Scanning done");
+                run.reporter().done();
+            }
+        });
+
+        final ProcessBuilder builder = ProcessBuilder.getLocal();
+
+        if (workingDirectory != null) {
+            builder.setWorkingDirectory(workingDirectory);
+        }
+
+        final ESLintExecutable executable = ESLintExecutable.resolve(command, workingDirectory);
+        builder.setExecutable(executable.getExecutable());
+        NodeRuntime.configure(builder.getEnvironment(), executable.isDirect() ? executable.getNode() : ESLintExecutable.findNode(command));
+
+        final List<String> arguments = new ArrayList<>(executable.getArguments());
+        final String config = findConfig();
+
+        if (config.isEmpty()) {
+            LOG.log(Level.INFO, "Using project related config");
+        } else {
+            LOG.log(Level.INFO, "Using custom config: {0}", config);
+            arguments.addAll(Arrays.asList(
+                    "--config",
+                    config));
         }
 
-        return "";
+        arguments.addAll(Arrays.asList("--format",
+                "json"
+        ));
+
+        final List<String> inputs = new ArrayList<>();
+
+        if (text != null) {
+            inputs.add("--stdin");
+            inputs.add("--stdin-filename");
+        }
+
+        inputs.addAll(targets);
+
+        final AtomicBoolean cached = new AtomicBoolean();
+
+        // ESLint does not lock its cache file, a run finding it taken by another runs without it
+        descriptor = descriptor.preExecution(() -> {
+            final List<String> all = new ArrayList<>(arguments);
+
+            if (cache != null && ESLintCache.acquire(cache)) {
+                cached.set(true);
+                all.addAll(ESLintCache.arguments(executable.getVersion(), cache));
+            } else if (cache != null) {
+                LOG.log(Level.FINE, "ESLint cache {0} is in use, running without it", cache);
+            }
+
+            all.addAll(inputs);
+            builder.setArguments(all);
+        }).postExecution(exitCode -> {
+            if (cached.get()) {
+                ESLintCache.release(cache);
+            }
+        });
+
+        LOG.log(Level.INFO, "Running command {0}", executable.getCommandLine());
+
+        final BaseExecutionService service = BaseExecutionService.newService(() -> {
+            try {
+                Process process = builder.call();
+                ProcessReaper.register(process, executable.getCommandLine());
+                run.started(process);
+
+                if (text != null) {
+                    try (Writer stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+                        stdin.write(text);
+                    }
+                }
+
+                return process;
+            } catch (IOException err) {
+                NotificationDisplayer.getDefault().notify("ESLint Error: Check the options", NotificationDisplayer.Priority.HIGH.getIcon(), "There is a problem while using ESLint, please check your options while clicking here. Probably the path to the ESLint CLI is not correct.", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent arg0) {
+                        OptionsDisplayer.getDefault().open(ESLintOptionsPanelController.OPTIONS_PATH);
+                    }
+                });
+
+                return null;
+            }
+        }, descriptor);
+
+        return run.start(service.run());
+    }
+
+    /**
+     * @return the result store of the project owning the file or {@code null}
+     * if the file does not belong to a project
+     */
+    private static ResultStore findStore(FileObject fileObject) {
+        final Project owner = FileOwnerQuery.getOwner(fileObject);
+        final File projectDirectory = owner != null ? FileUtil.toFile(owner.getProjectDirectory()) : null;
+
+        return projectDirectory != null ? ResultStore.get(projectDirectory.getAbsolutePath()) : null;
+    }
+
+    private static String findWorkingDirectory(FileObject fileObject) {
+        final Project owner = FileOwnerQuery.getOwner(fileObject);
+
+        if (owner != null) {
+            Project project = ProjectUtils.getInformation(owner).getProject();
+
+            if (project != null) {
+                FileObject projectDirectory = project.getProjectDirectory();
+                return projectDirectory.getPath();
+            }
+        }
+
+        return FileUtil.toFile(fileObject.getParent()).getAbsolutePath();
+    }
+
+    /**
+     * Forwards every file result to the reporter as soon as it is parsed.
+     */
+    static final class ReportingHandler implements ESLintOutputParser.ResultHandler {
+
+        private final ErrorReporter reporter;
+
+        ReportingHandler(ErrorReporter reporter) {
+            this.reporter = reporter;
+        }
+
+        @Override
+        public void result(String filePath, List<LintError> errors) {
+            if (filePath != null) {
+                errors.forEach(reporter::handle);
+                reporter.fileDone(filePath);
+            }
+        }
+    }
+
+    /**
+     * Collects the results of several runs and reports done after the last,
+     * or timed out if any of them timed out.
+     */
+    private static final class BatchReporter implements ErrorReporter {
+
+        private final ErrorReporter delegate;
+        private int pending;
+        private long timeout;
+
+        BatchReporter(ErrorReporter delegate, int runs) {
+            this.delegate = delegate;
+            this.pending = runs;
+        }
+
+        @Override
+        public synchronized void handle(LintError error) {
+            delegate.handle(error);
+        }
+
+        @Override
+        public synchronized void fileDone(String file) {
+            delegate.fileDone(file);
+        }
+
+        @Override
+        public synchronized void done() {
+            if (--pending == 0) {
+                end();
+            }
+        }
+
+        @Override
+        public synchronized void timedOut(long timeout) {
+            this.timeout = Math.max(this.timeout, timeout);
+
+            if (--pending == 0) {
+                end();
+            }
+        }
+
+        private void end() {
+            if (timeout > 0) {
+                delegate.timedOut(timeout);
+            } else {
+                delegate.done();
+            }
+        }
+    }
+
+    /**
+     * Files of one project linted by one ESLint process, a run per chunk.
+     */
+    private static final class Shard {
+
+        private final String workingDirectory;
+        private final ESLintDaemon daemon;
+        private final File cache;
+        private final List<List<String>> chunks;
+
+        Shard(String workingDirectory, ESLintDaemon daemon, File cache, List<List<String>> chunks) {
+            this.workingDirectory = workingDirectory;
+            this.daemon = daemon;
+            this.cache = cache;
+            this.chunks = chunks;
+        }
+    }
+
+    /**
+     * Stop the daemons of all projects, e.g. when the daemon is turned off.
+     * They start again on the next request if it is turned on.
+     */
+    public void stopDaemons() {
+        ESLintDaemon.stopAll();
+    }
+
+    private String findConfig() {
+        return ESLintOptionsModel.getDefault().getSnapshot().getConfig();
     }
 
     public static ESLint getDefault() {
@@ -0,0 +1,124 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.modules.Places;
+
+/**
+ * The cache file ESLint keeps for a project with {@code --cache}, located in
+ * the IDE cache directory instead of the project. ESLint keys its cache on
+ * file content and config, but the file is thrown away anyway whenever the
+ * ESLint version, the config files of the project or the custom config
+ * change so that a stale cache can never be used. ESLint does not lock the
+ * file, so a run takes it for as long as it runs and a run at the same time
+ * goes without it.
+ *
+ * @author jocke
+ */
+final class ESLintCache {
+
+    private static final Logger LOG = Logger.getLogger(ESLintCache.class.getName());
+    private static final String DIRECTORY = "eslint/eslintcache"; // NOI18N
+    private static final Set<File> IN_USE = ConcurrentHashMap.newKeySet();
+
+    private ESLintCache() {
+    }
+
+    /**
+     * @param fingerprint the setup the results are valid for, see
+     * {@link ESLint}
+     * @return the cache file of the working directory, cleared first if the
+     * setup or the ESLint version changed since it was written
+     */
+    static File get(String eslintPath, String workingDirectory, String fingerprint) {
+        return get(eslintPath, workingDirectory, "", fingerprint);
+    }
+
+    /**
+     * @param shard name of the part of the working directory linted by its
+     * own process, or an empty string for all of it
+     * @return the cache file of the shard, cleared first if the setup or the
+     * ESLint version changed since it was written
+     */
+    static File get(String eslintPath, String workingDirectory, String shard, String fingerprint) {
+        return get(Places.getCacheSubdirectory(DIRECTORY), workingDirectory, shard, fingerprint + '\0' + ESLintExecutable.resolve(eslintPath, workingDirectory).getVersion());
+    }
+
+    /**
+     * @param version the version of ESLint
+     * @return the arguments telling the ESLint CLI to use the cache file
+     */
+    static List<String> arguments(String version, File cache) {
+        final List<String> arguments = new ArrayList<>(Arrays.asList("--cache", "--cache-location", cache.getAbsolutePath())); // NOI18N
+
+        if (supportsContentStrategy(version)) {
+            arguments.addAll(Arrays.asList("--cache-strategy", "content")); // NOI18N
+        }
+
+        return Collections.unmodifiableList(arguments);
+    }
+
+    /**
+     * @return true if the cache was free and is now taken by the caller,
+     * false if another run uses it
+     */
+    static boolean acquire(File cache) {
+        return IN_USE.add(cache);
+    }
+
+    /**
+     * Hand back a cache taken with {@link #acquire(File)}.
+     */
+    static void release(File cache) {
+        IN_USE.remove(cache);
+    }
+
+    static synchronized File get(File directory, String workingDirectory, String shard, String stamp) {
+        final String hash = Long.toHexString(ResultCache.hash(new File(workingDirectory).getAbsolutePath()));
+        final String name = shard.isEmpty() ? hash : hash + '-' + shard;
+        final File cache = new File(directory, name + ".eslintcache"); // NOI18N
+        final Path stampFile = new File(directory, name + ".stamp").toPath(); // NOI18N
+
+        try {
+            final String previous = Files.exists(stampFile) ? new String(Files.readAllBytes(stampFile), StandardCharsets.UTF_8) : null;
+
+            if (!stamp.equals(previous)) {
+                LOG.log(Level.INFO, "Clearing ESLint cache of {0}", workingDirectory);
+                Files.deleteIfExists(cache.toPath());
+                Files.write(stampFile, stamp.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Failed to check ESLint cache of " + workingDirectory, ex);
+        }
+
+        return cache;
+    }
+
+    /**
+     * The content strategy keeps the cache valid when a checkout or build
+     * touches files without changing them, it was added in ESLint 7.21.
+     */
+    static boolean supportsContentStrategy(String version) {
+        final String[] parts = version.split("\\.");
+
+        try {
+            final int major = Integer.parseInt(parts[0]);
+            final int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+
+            return major > 7 || (major == 7 && minor >= 21);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
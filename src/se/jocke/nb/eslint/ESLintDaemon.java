@@ -0,0 +1,396 @@
+package se.jocke.nb.eslint;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.netbeans.api.extexecution.base.ProcessBuilder;
+import org.netbeans.api.extexecution.base.Processes;
+import org.openide.modules.Places;
+import org.openide.util.RequestProcessor;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+
+/**
+ * A long lived Node worker linting files on request, one per working directory.
+ * Requests and results are exchanged over stdin/stdout as newline delimited
+ * JSON, see eslint-daemon.js. A worker that dies is restarted on the next
+ * request. Queued requests are taken in priority order, an editor request
+ * overtakes the queued chunks of a project scan.
+ * <p>
+ * ESLint keeps the configs, parsers and plugins it loaded, so the worker is
+ * restarted when a request comes with another fingerprint of the ESLint
+ * setup than the one it was started with.
+ *
+ * @author jocke
+ */
+final class ESLintDaemon {
+
+    private static final Logger LOG = Logger.getLogger(ESLintDaemon.class.getName());
+    private static final Map<String, ESLintDaemon> DAEMONS = new ConcurrentHashMap<>();
+    private static final String SCRIPT = "eslint-daemon.js"; // NOI18N
+    private static final String RESULT_PREFIX = "{\"filePath\":"; // NOI18N
+    private static final String CONTROL_PREFIX = "{\"id\":"; // NOI18N
+    private static final RequestProcessor STDERR = new RequestProcessor("ESLint daemon stderr", 8, true); // NOI18N
+
+    private final String executable;
+    private final List<String> arguments;
+    private final String workingDirectory;
+    private final RequestProcessor requests;
+    private final PriorityQueue<Request> pending = new PriorityQueue<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private long submitted;
+
+    private final AtomicReference<Process> process = new AtomicReference<>();
+    private volatile boolean stopped;
+    private String setup;
+    private BufferedWriter stdin;
+    private BufferedReader stdout;
+
+    ESLintDaemon(String executable, List<String> arguments, String workingDirectory) {
+        this.executable = executable;
+        this.arguments = new ArrayList<>(arguments);
+        this.workingDirectory = workingDirectory;
+        this.requests = new RequestProcessor("ESLint daemon " + workingDirectory, 1, true); // NOI18N
+    }
+
+    /**
+     * Get the worker for the given ESLint CLI and working directory, starting
+     * one lazily.
+     *
+     * @return the worker or {@code null} if node or the ESLint package could
+     * not be found, in which case the caller should run ESLint the usual way
+     */
+    static ESLintDaemon get(String eslintPath, String workingDirectory) {
+        final String key = eslintPath + File.pathSeparator + workingDirectory;
+        ESLintDaemon daemon = DAEMONS.get(key);
+
+        if (daemon == null) {
+            ESLintExecutable executable = ESLintExecutable.resolve(eslintPath, workingDirectory);
+            Path eslintPackage = executable.getESLintPackage();
+            String node = executable.getNode();
+            Path script = extractScript();
+
+            if (eslintPackage == null || node == null || script == null) {
+                LOG.log(Level.INFO, "Can not run ESLint as daemon, node: {0}, eslint package: {1}", new Object[]{node, eslintPackage});
+                return null;
+            }
+
+            daemon = DAEMONS.computeIfAbsent(key, k -> new ESLintDaemon(node, Arrays.asList(script.toString(), eslintPackage.toString()), workingDirectory));
+        }
+
+        return daemon;
+    }
+
+    static void stopAll() {
+        DAEMONS.values().forEach(ESLintDaemon::stop);
+        DAEMONS.clear();
+    }
+
+    /**
+     * Queue a lint request for the files on disk or, given a text, for the
+     * unsaved content of the single file. Cancelling the returned run drops it from the
+     * queue, or silences its results if the worker is already busy with it;
+     * the worker itself keeps running. A request still running after the
+     * timeout kills the worker, it is started again for the next request.
+     *
+     * @param cache the ESLint cache file to use or {@code null}
+     * @param fingerprint identifies the ESLint setup of the request
+     * @param priority how urgent the request is compared to the queued ones
+     * @param timeout milliseconds the request may take, 0 for no limit
+     */
+    Future<Integer> verify(final List<String> paths, final String text, final String config, final File cache, final String fingerprint,
+            final LintPriority priority, final long timeout, final ErrorReporter reporter) {
+        final LintRun run = new LintRun(reporter, timeout);
+        final Request request;
+
+        synchronized (pending) {
+            request = new Request(priority, submitted++, () -> {
+                run.started(this::kill);
+
+                try {
+                    return run(paths, text, config, cache, fingerprint, run);
+                } finally {
+                    run.reporter().done();
+                }
+            });
+
+            pending.add(request);
+        }
+
+        // Every request posts one turn of the worker, which takes the most urgent request queued
+        requests.post(this::runNext);
+
+        return run.start(request);
+    }
+
+    private void runNext() {
+        final Request request;
+
+        synchronized (pending) {
+            request = pending.poll();
+        }
+
+        if (request != null) {
+            // A cancelled request does nothing
+            request.run();
+        }
+    }
+
+    /**
+     * Stop the worker for good without waiting for the request it is busy
+     * with, which then fails like the requests still queued.
+     */
+    void stop() {
+        stopped = true;
+        destroy();
+    }
+
+    /**
+     * Destroy the process of the worker, it is started again on the next
+     * request unless stopped.
+     */
+    private void destroy() {
+        final Process running = process.get();
+
+        // A killed process may look alive for a moment, forget it so the next request starts a new one
+        if (running != null && process.compareAndSet(running, null)) {
+            ProcessReaper.unregister(running);
+            running.destroy();
+        }
+    }
+
+    /**
+     * Kill the worker without waiting for the request it is busy with, which
+     * then fails with the end of its output.
+     */
+    private void kill() {
+        final Process running = process.get();
+
+        if (running != null) {
+            LOG.log(Level.WARNING, "Killing ESLint daemon in {0}", workingDirectory);
+            ProcessReaper.unregister(running);
+            Processes.killTree(running, Collections.<String, String>emptyMap());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int run(List<String> paths, String text, String config, File cache, String fingerprint, LintRun lintRun) {
+        final ErrorReporter reporter = lintRun.reporter();
+        JSONObject request = new JSONObject();
+        int id = ids.incrementAndGet();
+        request.put("id", id);
+        JSONArray files = new JSONArray();
+        files.addAll(paths);
+        request.put("files", files);
+
+        if (text != null) {
+            request.put("text", text);
+        }
+
+        if (!config.isEmpty()) {
+            request.put("config", config);
+        }
+
+        if (cache != null) {
+            request.put("cache", cache.getAbsolutePath());
+        }
+
+        CountingReporter counting = new CountingReporter(reporter);
+
+        for (int attempt = 0;; attempt++) {
+            try {
+                return exchange(id, request.toJSONString(), fingerprint, counting);
+            } catch (IOException ex) {
+                destroy();
+
+                // Only retry when nothing reached the reporter, otherwise results would be doubled
+                if (lintRun.isTimedOut() || stopped) {
+                    return 1;
+                } else if (attempt > 0 || counting.count > 0) {
+                    LOG.log(Level.WARNING, "ESLint daemon failed in " + workingDirectory, ex);
+                    return 1;
+                }
+
+                LOG.log(Level.INFO, "ESLint daemon in {0} died, restarting", workingDirectory);
+            }
+        }
+    }
+
+    private synchronized int exchange(int id, String request, String fingerprint, ErrorReporter reporter) throws IOException {
+        if (process.get() != null && !fingerprint.equals(setup)) {
+            LOG.log(Level.INFO, "ESLint setup changed, restarting daemon in {0}", workingDirectory);
+            destroy();
+        }
+
+        if (process.get() == null || !process.get().isAlive()) {
+            if (stopped) {
+                throw new IOException("ESLint daemon stopped");
+            }
+
+            start();
+            setup = fingerprint;
+
+            // Stopped while starting, stop may have missed the new process
+            if (stopped) {
+                destroy();
+                throw new IOException("ESLint daemon stopped");
+            }
+        }
+
+        stdin.write(request);
+        stdin.newLine();
+        stdin.flush();
+
+        final JSONParser jsonParser = new JSONParser();
+        final ESLintOutputParser parser = new ESLintOutputParser(new ESLint.ReportingHandler(reporter));
+        String line;
+
+        while ((line = stdout.readLine()) != null) {
+            if (line.startsWith(RESULT_PREFIX)) {
+                parser.parse(line);
+                continue;
+            } else if (!line.startsWith(CONTROL_PREFIX)) {
+                LOG.log(Level.FINE, "Ignoring daemon output {0}", line);
+                continue;
+            }
+
+            final JSONObject object;
+
+            try {
+                object = (JSONObject) jsonParser.parse(line);
+            } catch (ParseException ex) {
+                LOG.log(Level.FINE, "Ignoring daemon output {0}", line);
+                continue;
+            }
+
+            if (Integer.parseInt(object.get("id").toString()) == id) {
+                if (object.containsKey("error")) {
+                    LOG.log(Level.WARNING, "ESLint daemon error: {0}", object.get("error"));
+                    return 1;
+                }
+
+                return 0;
+            }
+        }
+
+        throw new EOFException("ESLint daemon terminated");
+    }
+
+    private void start() throws IOException {
+        LOG.log(Level.INFO, "Starting ESLint daemon in {0}", workingDirectory);
+
+        final ProcessBuilder builder = ProcessBuilder.getLocal();
+        builder.setExecutable(executable);
+        builder.setArguments(arguments);
+        NodeRuntime.configure(builder.getEnvironment(), executable);
+
+        if (workingDirectory != null) {
+            builder.setWorkingDirectory(workingDirectory);
+        }
+
+        final Process started = builder.call();
+        process.set(started);
+        ProcessReaper.register(started, executable + " " + String.join(" ", arguments));
+        stdin = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+        stdout = new BufferedReader(new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8));
+
+        final InputStream stderr = started.getErrorStream();
+        STDERR.post(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LOG.log(Level.INFO, "ESLint daemon: {0}", line);
+                }
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "ESLint daemon stderr closed", ex);
+            }
+        });
+    }
+
+    private static Path extractScript() {
+        try (InputStream in = ESLintDaemon.class.getResourceAsStream(SCRIPT)) {
+            File script = Places.getCacheSubfile("eslint/" + SCRIPT); // NOI18N
+            Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            return script.toPath();
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Failed to extract " + SCRIPT, ex);
+            return null;
+        }
+    }
+
+    /**
+     * A queued request, ordered by priority and then by submission.
+     */
+    private static final class Request extends FutureTask<Integer> implements Comparable<Request> {
+
+        private final LintPriority priority;
+        private final long sequence;
+
+        Request(LintPriority priority, long sequence, Callable<Integer> callable) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            final int order = priority.compareTo(other.priority);
+
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class CountingReporter implements ErrorReporter {
+
+        private final ErrorReporter delegate;
+        private int count;
+
+        CountingReporter(ErrorReporter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void handle(LintError error) {
+            count++;
+            delegate.handle(error);
+        }
+
+        @Override
+        public void fileDone(String file) {
+            count++;
+            delegate.fileDone(file);
+        }
+
+        @Override
+        public void done() {
+        }
+    }
+}
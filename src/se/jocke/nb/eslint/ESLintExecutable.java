@@ -0,0 +1,250 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openide.util.Utilities;
+import se.jocke.nb.eslint.ui.options.FileUtils;
+
+/**
+ * How to start ESLint for a working directory. The eslint package installed
+ * in the project, or above it, is preferred over the configured CLI, and the
+ * npm shim of the CLI is skipped by running the bin script of the package
+ * with node directly, which saves a shell and a module lookup per run. When
+ * node or the package can not be found the configured CLI is run as is.
+ * <p>
+ * The resolution is cached per working directory until package.json or
+ * node_modules of the working directory change.
+ *
+ * @author jocke
+ */
+final class ESLintExecutable {
+
+    private static final Logger LOG = Logger.getLogger(ESLintExecutable.class.getName());
+    private static final Map<String, ESLintExecutable> RESOLVED = new ConcurrentHashMap<>();
+
+    private final String command;
+    private final String node;
+    private final Path eslintPackage;
+    private final Path script;
+    private final String version;
+    private final String stamp;
+
+    private ESLintExecutable(String command, String node, Path eslintPackage, Path script, String version, String stamp) {
+        this.command = command;
+        this.node = node;
+        this.eslintPackage = eslintPackage;
+        this.script = script;
+        this.version = version;
+        this.stamp = stamp;
+    }
+
+    /**
+     * @param eslintPath the configured ESLint CLI
+     * @param workingDirectory the directory ESLint runs in or {@code null}
+     * @return how to run ESLint in the working directory
+     */
+    static ESLintExecutable resolve(String eslintPath, String workingDirectory) {
+        final String key = eslintPath + '\0' + workingDirectory;
+        final String stamp = stamp(workingDirectory);
+        final ESLintExecutable cached = RESOLVED.get(key);
+
+        if (cached != null && cached.stamp.equals(stamp)) {
+            return cached;
+        }
+
+        final ESLintExecutable resolved = resolve(eslintPath, workingDirectory, stamp);
+        RESOLVED.put(key, resolved);
+
+        LOG.log(Level.INFO, "Running ESLint {0} in {1} with {2}", new Object[]{resolved.version, workingDirectory, resolved.getCommandLine()});
+
+        return resolved;
+    }
+
+    private static ESLintExecutable resolve(String eslintPath, String workingDirectory, String stamp) {
+        Path eslintPackage = workingDirectory != null ? findLocalPackage(Paths.get(workingDirectory)) : null;
+
+        if (eslintPackage == null) {
+            eslintPackage = findESLintPackage(eslintPath);
+        }
+
+        if (eslintPackage == null) {
+            return new ESLintExecutable(eslintPath, null, null, null, "", stamp);
+        }
+
+        final JSONObject manifest = readManifest(eslintPackage);
+        final Object version = manifest.get("version"); // NOI18N
+        final Path script = findScript(eslintPackage, manifest);
+        final String node = findNode(eslintPath);
+
+        return new ESLintExecutable(eslintPath, node, eslintPackage, script, version != null ? version.toString() : "", stamp);
+    }
+
+    /**
+     * @return the executable to start, node or the configured CLI
+     */
+    String getExecutable() {
+        return isDirect() ? node : command;
+    }
+
+    /**
+     * @return the arguments that go before the ESLint arguments
+     */
+    List<String> getArguments() {
+        return isDirect() ? Collections.singletonList(script.toString()) : Collections.<String>emptyList();
+    }
+
+    /**
+     * @return true if node runs the bin script of the package directly
+     */
+    boolean isDirect() {
+        return node != null && script != null;
+    }
+
+    /**
+     * @return node or {@code null} if not found
+     */
+    String getNode() {
+        return node;
+    }
+
+    /**
+     * @return the eslint package directory or {@code null} if not found
+     */
+    Path getESLintPackage() {
+        return eslintPackage;
+    }
+
+    /**
+     * @return the version of the eslint package or an empty string
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the executable and arguments joined by spaces
+     */
+    String getCommandLine() {
+        final List<String> commandLine = new ArrayList<>();
+        commandLine.add(getExecutable());
+        commandLine.addAll(getArguments());
+
+        return String.join(" ", commandLine);
+    }
+
+    /**
+     * Changes when a package is installed or removed in the working directory.
+     */
+    private static String stamp(String workingDirectory) {
+        if (workingDirectory == null) {
+            return "";
+        }
+
+        final File directory = new File(workingDirectory);
+
+        return new File(directory, "package.json").lastModified() + ":" + new File(directory, "node_modules").lastModified(); // NOI18N
+    }
+
+    /**
+     * @return the eslint package in node_modules of the directory or of the
+     * closest parent having one
+     */
+    static Path findLocalPackage(Path directory) {
+        for (Path dir = directory.toAbsolutePath(); dir != null; dir = dir.getParent()) {
+            final Path candidate = dir.resolve("node_modules").resolve("eslint"); // NOI18N
+
+            if (Files.isRegularFile(candidate.resolve("package.json"))) { // NOI18N
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    static Path findESLintPackage(String eslintPath) {
+        try {
+            Path cli = Paths.get(eslintPath).toRealPath();
+            Path bin = cli.getParent();
+
+            List<Path> candidates = new ArrayList<>();
+
+            if (bin != null && bin.getFileName() != null && "bin".equals(bin.getFileName().toString())) {
+                // node_modules/.bin/eslint -> node_modules/eslint/bin/eslint.js
+                candidates.add(bin.getParent());
+            }
+
+            Path dir = Paths.get(eslintPath).toAbsolutePath().getParent();
+
+            if (dir != null) {
+                // node_modules/.bin/eslint(.cmd) and the global npm folder on Windows
+                candidates.add(dir.resolveSibling("eslint"));
+                candidates.add(dir.resolve("node_modules").resolve("eslint"));
+            }
+
+            for (Path candidate : candidates) {
+                if (candidate != null && Files.isRegularFile(candidate.resolve("package.json"))) {
+                    return candidate;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.FINE, "ESLint package not found for " + eslintPath, ex);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the CLI script of the package from the bin field of its
+     * package.json or {@code null} if it does not exist
+     */
+    static Path findScript(Path eslintPackage, JSONObject manifest) {
+        Object bin = manifest.get("bin"); // NOI18N
+
+        if (bin instanceof JSONObject) {
+            bin = ((JSONObject) bin).get("eslint"); // NOI18N
+        }
+
+        final Path script = eslintPackage.resolve(bin instanceof String ? (String) bin : "bin/eslint.js").normalize(); // NOI18N
+
+        return Files.isRegularFile(script) ? script : null;
+    }
+
+    static String findNode(String eslintPath) {
+        String name = Utilities.isWindows() ? "node.exe" : "node"; // NOI18N
+        File sibling = new File(new File(eslintPath).getAbsoluteFile().getParentFile(), name);
+
+        if (sibling.isFile()) {
+            return sibling.getAbsolutePath();
+        }
+
+        List<String> found = FileUtils.findFileOnUsersPath(name);
+
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private static JSONObject readManifest(Path eslintPackage) {
+        try (Reader reader = Files.newBufferedReader(eslintPackage.resolve("package.json"), StandardCharsets.UTF_8)) { // NOI18N
+            final Object manifest = new JSONParser().parse(reader);
+
+            return manifest instanceof JSONObject ? (JSONObject) manifest : new JSONObject();
+        } catch (IOException | ParseException ex) {
+            LOG.log(Level.FINE, "Can not read package.json of " + eslintPackage, ex);
+            return new JSONObject();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import se.jocke.nb.eslint.error.LintError;
+
+/**
+ * Incremental parser for the output of {@code eslint --format json}. Input is
+ * pushed in chunks as it arrives from the process and every file result is
+ * handed over as soon as its closing brace has been read. Only the fields
+ * needed for a {@link LintError} are decoded, everything else (source, fix,
+ * suggestions, ...) is skipped without being materialized.
+ * <p>
+ * Accepts a JSON array of results as well as one result object per line.
+ * <p>
+ * The warning ESLint gives for an explicitly passed file that its config
+ * ignores is dropped, the file is reported without errors. ESLint skips such
+ * files silently when it lists them itself.
+ *
+ * @author jocke
+ */
+final class ESLintOutputParser {
+
+    interface ResultHandler {
+
+        void result(String filePath, List<LintError> errors);
+    }
+
+    private static final int S_VALUE = 0;
+    private static final int S_STRING = 1;
+    private static final int S_ESCAPE = 2;
+    private static final int S_UNICODE = 3;
+    private static final int S_LITERAL = 4;
+
+    private static final int ROLE_NONE = 0;
+    private static final int ROLE_RESULTS = 1;
+    private static final int ROLE_RESULT = 2;
+    private static final int ROLE_MESSAGES = 3;
+    private static final int ROLE_MESSAGE = 4;
+
+    private static final int KEY_OTHER = 0;
+    private static final int KEY_FILE_PATH = 1;
+    private static final int KEY_MESSAGES = 2;
+    private static final int KEY_MESSAGE = 3;
+    private static final int KEY_LINE = 4;
+    private static final int KEY_COLUMN = 5;
+    private static final int KEY_END_COLUMN = 6;
+    private static final int KEY_SEVERITY = 7;
+    private static final int KEY_RULE_ID = 8;
+    private static final int KEY_FATAL = 9;
+
+    private static final String FILE_IGNORED = "File ignored"; // NOI18N
+
+    private final ResultHandler handler;
+
+    private int state = S_VALUE;
+    private int[] roles = new int[16];
+    private boolean[] objects = new boolean[16];
+    private int depth;
+    private boolean expectKey;
+    private int key = KEY_OTHER;
+
+    private final StringBuilder text = new StringBuilder();
+    private boolean capture;
+    private boolean readingKey;
+    private int unicode;
+    private int unicodeDigits;
+
+    private boolean number;
+    private boolean literalTrue;
+    private boolean negative;
+    private int numberValue;
+
+    private String filePath;
+    private List<LintError> errors = new ArrayList<>();
+    private int line;
+    private int column;
+    private int endColumn;
+    private int severity;
+    private String message;
+    private boolean fatal;
+    private boolean rule;
+
+    ESLintOutputParser(ResultHandler handler) {
+        this.handler = handler;
+    }
+
+    void parse(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            accept(chars.charAt(i));
+        }
+    }
+
+    void parse(char[] chars, int offset, int length) {
+        final int end = offset + length;
+
+        for (int i = offset; i < end; i++) {
+            if (state == S_STRING && !capture) {
+                // Fast path for skipped values like source, only look for the closing quote
+                while (i < end && chars[i] != '"' && chars[i] != '\\') {
+                    i++;
+                }
+
+                if (i == end) {
+                    break;
+                }
+            }
+
+            accept(chars[i]);
+        }
+    }
+
+    /**
+     * Flush a pending literal at the end of the input.
+     */
+    void end() {
+        if (state == S_LITERAL) {
+            endLiteral();
+        }
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case S_STRING:
+                if (c == '"') {
+                    endString();
+                } else if (c == '\\') {
+                    state = S_ESCAPE;
+                } else if (capture) {
+                    text.append(c);
+                }
+                break;
+            case S_ESCAPE:
+                state = S_STRING;
+                if (c == 'u') {
+                    state = S_UNICODE;
+                    unicode = 0;
+                    unicodeDigits = 0;
+                } else if (capture) {
+                    text.append(unescape(c));
+                }
+                break;
+            case S_UNICODE:
+                unicode = (unicode << 4) + Character.digit(c, 16);
+                if (++unicodeDigits == 4) {
+                    state = S_STRING;
+                    if (capture) {
+                        text.append((char) unicode);
+                    }
+                }
+                break;
+            case S_LITERAL:
+                if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                    endLiteral();
+                    accept(c);
+                } else if (number && c >= '0' && c <= '9') {
+                    numberValue = numberValue * 10 + (c - '0');
+                } else {
+                    number = false;
+                }
+                break;
+            default:
+                acceptStructure(c);
+        }
+    }
+
+    private void acceptStructure(char c) {
+        switch (c) {
+            case '{':
+                push(true);
+                break;
+            case '[':
+                push(false);
+                break;
+            case '}':
+            case ']':
+                pop();
+                break;
+            case ',':
+                expectKey = depth > 0 && objects[depth - 1];
+                break;
+            case ':':
+                expectKey = false;
+                break;
+            case '"':
+                state = S_STRING;
+                readingKey = expectKey;
+
+                if (!readingKey && key == KEY_RULE_ID && depth > 0 && roles[depth - 1] == ROLE_MESSAGE) {
+                    rule = true;
+                }
+
+                capture = readingKey ? isTracked() : isWanted();
+                text.setLength(0);
+                break;
+            default:
+                if (!Character.isWhitespace(c)) {
+                    state = S_LITERAL;
+                    literalTrue = c == 't';
+                    negative = c == '-';
+                    number = negative || (c >= '0' && c <= '9');
+                    numberValue = negative ? 0 : c - '0';
+                }
+        }
+    }
+
+    private void push(boolean object) {
+        int parent = depth == 0 ? ROLE_NONE : roles[depth - 1];
+        int role = ROLE_NONE;
+
+        if (depth == 0) {
+            role = object ? ROLE_RESULT : ROLE_RESULTS;
+        } else if (parent == ROLE_RESULTS && object) {
+            role = ROLE_RESULT;
+        } else if (parent == ROLE_RESULT && !object && key == KEY_MESSAGES) {
+            role = ROLE_MESSAGES;
+        } else if (parent == ROLE_MESSAGES && object) {
+            role = ROLE_MESSAGE;
+        }
+
+        if (depth == roles.length) {
+            roles = Arrays.copyOf(roles, depth * 2);
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+
+        roles[depth] = role;
+        objects[depth] = object;
+        depth++;
+        expectKey = object;
+        key = KEY_OTHER;
+
+        if (role == ROLE_RESULT) {
+            filePath = null;
+            errors = new ArrayList<>();
+        } else if (role == ROLE_MESSAGE) {
+            line = 1;
+            column = 1;
+            endColumn = -1;
+            severity = 1;
+            message = null;
+            fatal = false;
+            rule = false;
+        }
+    }
+
+    private void pop() {
+        if (depth == 0) {
+            return;
+        }
+
+        int role = roles[--depth];
+
+        if (role == ROLE_MESSAGE) {
+            if (isIgnoredFile()) {
+                expectKey = false;
+                key = KEY_OTHER;
+                return;
+            }
+
+            errors.add(new LintError(filePath, line, column, endColumn < 0 ? column : endColumn, severity, message));
+        } else if (role == ROLE_RESULT) {
+            List<LintError> result = errors;
+
+            if (!result.isEmpty() && result.get(0).getFile() == null) {
+                // filePath came after the messages
+                result = new ArrayList<>(errors.size());
+                for (LintError error : errors) {
+                    result.add(new LintError(filePath, error.getLine(), error.getStartCol(), error.getEndCol(), error.getSeverity(), error.getMessage()));
+                }
+            }
+
+            handler.result(filePath, result);
+        }
+
+        expectKey = false;
+        key = KEY_OTHER;
+    }
+
+    /**
+     * @return true if the message is the warning of a file ignored by the
+     * config, it has no rule and is not fatal
+     */
+    private boolean isIgnoredFile() {
+        return !fatal && !rule && message != null && message.startsWith(FILE_IGNORED);
+    }
+
+    private boolean isTracked() {
+        int role = depth == 0 ? ROLE_NONE : roles[depth - 1];
+
+        return role == ROLE_RESULT || role == ROLE_MESSAGE;
+    }
+
+    private boolean isWanted() {
+        int role = depth == 0 ? ROLE_NONE : roles[depth - 1];
+
+        return (role == ROLE_RESULT && key == KEY_FILE_PATH) || (role == ROLE_MESSAGE && key == KEY_MESSAGE);
+    }
+
+    private void endString() {
+        state = S_VALUE;
+
+        if (readingKey) {
+            key = toKey(text);
+        } else if (capture) {
+            int role = depth == 0 ? ROLE_NONE : roles[depth - 1];
+
+            if (role == ROLE_RESULT) {
+                filePath = text.toString();
+            } else {
+                message = text.toString();
+            }
+        }
+    }
+
+    private void endLiteral() {
+        state = S_VALUE;
+
+        if (key == KEY_FATAL && depth > 0 && roles[depth - 1] == ROLE_MESSAGE) {
+            fatal = literalTrue;
+            return;
+        }
+
+        if (!number || depth == 0 || roles[depth - 1] != ROLE_MESSAGE) {
+            return;
+        }
+
+        int value = negative ? -numberValue : numberValue;
+
+        switch (key) {
+            case KEY_LINE:
+                line = value;
+                break;
+            case KEY_COLUMN:
+                column = value;
+                break;
+            case KEY_END_COLUMN:
+                endColumn = value;
+                break;
+            case KEY_SEVERITY:
+                severity = value;
+                break;
+            default:
+        }
+    }
+
+    private static int toKey(CharSequence name) {
+        switch (name.length()) {
+            case 4:
+                return equals(name, "line") ? KEY_LINE : KEY_OTHER;
+            case 5:
+                return equals(name, "fatal") ? KEY_FATAL : KEY_OTHER;
+            case 6:
+                if (equals(name, "column")) {
+                    return KEY_COLUMN;
+                }
+                return equals(name, "ruleId") ? KEY_RULE_ID : KEY_OTHER;
+            case 7:
+                return equals(name, "message") ? KEY_MESSAGE : KEY_OTHER;
+            case 8:
+                if (equals(name, "filePath")) {
+                    return KEY_FILE_PATH;
+                }
+                if (equals(name, "messages")) {
+                    return KEY_MESSAGES;
+                }
+                return equals(name, "severity") ? KEY_SEVERITY : KEY_OTHER;
+            case 9:
+                return equals(name, "endColumn") ? KEY_END_COLUMN : KEY_OTHER;
+            default:
+                return KEY_OTHER;
+        }
+    }
+
+    private static boolean equals(CharSequence a, String b) {
+        for (int i = 0; i < b.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            default:
+                return c;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+
+/**
+ * Runs in progress by what they lint, so that the annotation provider and the
+ * task scanner asking for the same file and content at the same time share
+ * one ESLint run. Every subscriber gets all results, also those reported
+ * before it joined, and done once the run is done. A subscriber more urgent
+ * than the one that started the run raises its priority while it is queued.
+ *
+ * @author jocke
+ */
+final class InFlightRuns {
+
+    private static final Logger LOG = Logger.getLogger(InFlightRuns.class.getName());
+
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+    private final BiConsumer<Future<Integer>, LintPriority> raise;
+
+    /**
+     * @param raise makes a started run more urgent, e.g. a queued run of the
+     * scheduler
+     */
+    InFlightRuns(BiConsumer<Future<Integer>, LintPriority> raise) {
+        this.raise = raise;
+    }
+
+    /**
+     * @param key what the run lints, e.g. fingerprint, path and content hash
+     * @param priority how urgent the run is for this subscriber
+     * @param reporter receives the results
+     * @param start starts the run reporting to the given reporter, if no run
+     * with the key is in progress
+     * @return the run as seen by this subscriber, cancelling it cancels the
+     * run only if no other subscriber is left
+     */
+    Future<Integer> join(String key, LintPriority priority, ErrorReporter reporter, Function<ErrorReporter, Future<Integer>> start) {
+        while (true) {
+            final Run created = new Run(key, priority);
+            final Run run = runs.computeIfAbsent(key, k -> created);
+            final Subscription subscription = run.subscribe(reporter);
+
+            if (subscription == null) {
+                // Finished between lookup and subscribe
+                continue;
+            }
+
+            if (run != created) {
+                LOG.log(Level.FINE, "Joining run in progress {0}", key);
+                run.raise(priority);
+                return subscription;
+            }
+
+            try {
+                final Future<Integer> future = start.apply(run);
+
+                if (future == null) {
+                    run.finish();
+                    return null;
+                }
+
+                run.started(future);
+                return subscription;
+            } catch (RuntimeException ex) {
+                run.finish();
+                throw ex;
+            }
+        }
+    }
+
+    int size() {
+        return runs.size();
+    }
+
+    private final class Run implements ErrorReporter {
+
+        private final String key;
+        private final List<Subscription> subscribers = new ArrayList<>();
+        private final List<LintError> errors = new ArrayList<>();
+        private final List<String> files = new ArrayList<>();
+        private Future<Integer> future;
+        private boolean finished;
+        private LintPriority priority;
+        private boolean raised;
+
+        Run(String key, LintPriority priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        void raise(LintPriority urgent) {
+            final Future<Integer> started;
+
+            synchronized (this) {
+                if (urgent.compareTo(priority) >= 0) {
+                    return;
+                }
+
+                priority = urgent;
+                raised = true;
+                started = future;
+            }
+
+            if (started != null) {
+                raise.accept(started, urgent);
+            }
+        }
+
+        synchronized Subscription subscribe(ErrorReporter reporter) {
+            if (future != null && future.isDone()) {
+                // Cancelled or failed without reporting done
+                finish();
+            }
+
+            if (finished) {
+                return null;
+            }
+
+            errors.forEach(reporter::handle);
+            files.forEach(reporter::fileDone);
+
+            final Subscription subscription = new Subscription(this, reporter);
+            subscribers.add(subscription);
+
+            return subscription;
+        }
+
+        void started(Future<Integer> started) {
+            final boolean cancel;
+            final LintPriority raisedTo;
+
+            synchronized (this) {
+                future = started;
+                cancel = subscribers.isEmpty() && !finished;
+                raisedTo = raised ? priority : null;
+                notifyAll();
+            }
+
+            if (cancel) {
+                started.cancel(true);
+                finish();
+            } else if (raisedTo != null) {
+                // Joined by a more urgent subscriber while starting
+                raise.accept(started, raisedTo);
+            }
+        }
+
+        synchronized Future<Integer> await() throws InterruptedException {
+            while (future == null && !finished) {
+                wait();
+            }
+
+            return future;
+        }
+
+        void unsubscribe(Subscription subscription) {
+            final Future<Integer> cancel;
+
+            synchronized (this) {
+                subscribers.remove(subscription);
+                cancel = subscribers.isEmpty() && !finished ? future : null;
+            }
+
+            if (cancel != null) {
+                cancel.cancel(true);
+                finish();
+            }
+        }
+
+        synchronized void finish() {
+            finished = true;
+            runs.remove(key, this);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void handle(LintError error) {
+            errors.add(error);
+            subscribers.forEach(subscription -> subscription.reporter.handle(error));
+        }
+
+        @Override
+        public synchronized void fileDone(String file) {
+            files.add(file);
+            subscribers.forEach(subscription -> subscription.reporter.fileDone(file));
+        }
+
+        @Override
+        public void done() {
+            end().forEach(subscription -> subscription.reporter.done());
+        }
+
+        @Override
+        public void timedOut(long timeout) {
+            end().forEach(subscription -> subscription.reporter.timedOut(timeout));
+        }
+
+        private synchronized List<Subscription> end() {
+            finish();
+            return new ArrayList<>(subscribers);
+        }
+    }
+
+    private static final class Subscription implements Future<Integer> {
+
+        private final Run run;
+        private final ErrorReporter reporter;
+        private volatile boolean cancelled;
+
+        Subscription(Run run, ErrorReporter reporter) {
+            this.run = run;
+            this.reporter = reporter;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (cancelled || isDone()) {
+                return false;
+            }
+
+            cancelled = true;
+            run.unsubscribe(this);
+
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            synchronized (run) {
+                return cancelled || (run.future != null && run.future.isDone()) || (run.future == null && run.finished);
+            }
+        }
+
+        @Override
+        public Integer get() throws InterruptedException, ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+
+            final Future<Integer> future = run.await();
+
+            return future != null ? future.get() : null;
+        }
+
+        @Override
+        public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+
+            final Future<Integer> future = run.await();
+
+            return future != null ? future.get(timeout, unit) : null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package se.jocke.nb.eslint;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.filesystems.FileObject;
+import org.openide.util.RequestProcessor;
+import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
+
+/**
+ * Coalesces bursts of lint requests for the same file. A request runs once
+ * the file has been quiet for the configured delay, and only the newest
+ * request of a burst runs, the older ones are dropped. Starting a request
+ * cancels the run of an older request for the same file that is still in
+ * flight.
+ *
+ * @author jocke
+ */
+public final class LintDebouncer {
+
+    private static final Logger LOG = Logger.getLogger(LintDebouncer.class.getName());
+    private static final RequestProcessor RP = new RequestProcessor(LintDebouncer.class.getName(), 1, true);
+
+    private final Map<FileObject, Supplier<? extends Future<?>>> latest = new HashMap<>();
+    private final Map<FileObject, RequestProcessor.Task> tasks = new HashMap<>();
+    private final Map<FileObject, Future<?>> running = new HashMap<>();
+
+    public void schedule(final FileObject fileObject, final Supplier<? extends Future<?>> lint) {
+        final int delay = ESLintOptionsModel.getDefault().getSnapshot().getLintDelay();
+
+        synchronized (this) {
+            if (latest.put(fileObject, lint) != null) {
+                LOG.log(Level.FINE, "Dropped superseded lint request for {0}", fileObject);
+            }
+
+            tasks.computeIfAbsent(fileObject, key -> RP.create(() -> fire(key))).schedule(delay);
+        }
+    }
+
+    /**
+     * Run a request right away, dropping pending and cancelling running
+     * requests for the file.
+     */
+    public void run(final FileObject fileObject, final Supplier<? extends Future<?>> lint) {
+        synchronized (this) {
+            latest.remove(fileObject);
+            RequestProcessor.Task task = tasks.remove(fileObject);
+
+            if (task != null) {
+                task.cancel();
+            }
+        }
+
+        start(fileObject, lint);
+    }
+
+    public void cancel(FileObject fileObject) {
+        final Future<?> previous;
+
+        synchronized (this) {
+            latest.remove(fileObject);
+            RequestProcessor.Task task = tasks.remove(fileObject);
+
+            if (task != null) {
+                task.cancel();
+            }
+
+            previous = running.remove(fileObject);
+        }
+
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    private void fire(FileObject fileObject) {
+        final Supplier<? extends Future<?>> lint;
+
+        synchronized (this) {
+            lint = latest.remove(fileObject);
+            tasks.remove(fileObject);
+        }
+
+        if (lint != null) {
+            start(fileObject, lint);
+        }
+    }
+
+    private void start(FileObject fileObject, Supplier<? extends Future<?>> lint) {
+        final Future<?> previous;
+
+        synchronized (this) {
+            previous = running.remove(fileObject);
+            running.values().removeIf(Future::isDone);
+        }
+
+        if (previous != null && !previous.isDone()) {
+            LOG.log(Level.FINE, "Cancelling superseded lint run for {0}", fileObject);
+            previous.cancel(true);
+        }
+
+        final Future<?> future = lint.get();
+
+        if (future != null) {
+            synchronized (this) {
+                running.put(fileObject, future);
+            }
+        }
+    }
+}
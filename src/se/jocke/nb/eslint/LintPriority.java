@@ -0,0 +1,31 @@
+package se.jocke.nb.eslint;
+
+/**
+ * Order in which queued ESLint runs get to start, most urgent first.
+ *
+ * @author jocke
+ */
+public enum LintPriority {
+
+    /**
+     * The file in the editor that has the focus. Not passed in, a run for an
+     * open editor becomes focused while its editor has the focus.
+     */
+    FOCUSED_EDITOR,
+    /**
+     * A file open in an editor.
+     */
+    OPEN_EDITOR,
+    /**
+     * A scan the user asked for, e.g. of the current file in the task list.
+     */
+    EXPLICIT,
+    /**
+     * Project scans and files changed on disk.
+     */
+    BACKGROUND;
+
+    boolean isEditor() {
+        return this == FOCUSED_EDITOR || this == OPEN_EDITOR;
+    }
+}
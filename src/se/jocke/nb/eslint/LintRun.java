@@ -0,0 +1,204 @@
+package se.jocke.nb.eslint;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.extexecution.base.Processes;
+import org.openide.util.RequestProcessor;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+
+/**
+ * A single ESLint run. Cancelling it kills the whole process tree and
+ * silences the reporter, so results of a superseded run never arrive. A run
+ * still going after its timeout is stopped the same way and its reporter is
+ * told it timed out instead of done.
+ *
+ * @author jocke
+ */
+final class LintRun implements Future<Integer> {
+
+    private static final Logger LOG = Logger.getLogger(LintRun.class.getName());
+    private static final RequestProcessor TIMEOUTS = new RequestProcessor("ESLint timeouts", 1, true); // NOI18N
+
+    private final ErrorReporter reporter;
+    private final long timeout;
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private volatile Future<Integer> delegate;
+    private volatile Process process;
+    private volatile RequestProcessor.Task timer;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+
+    /**
+     * @param timeout milliseconds the run may take once started, 0 for no
+     * limit
+     */
+    LintRun(ErrorReporter reporter, long timeout) {
+        this.timeout = timeout;
+        this.reporter = new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                if (!cancelled && !ended.get()) {
+                    reporter.handle(error);
+                }
+            }
+
+            @Override
+            public void fileDone(String file) {
+                if (!cancelled && !ended.get()) {
+                    reporter.fileDone(file);
+                }
+            }
+
+            @Override
+            public void done() {
+                disarm();
+
+                // Killing the process on timeout closes its output, which ends the run too
+                if (!cancelled && ended.compareAndSet(false, true)) {
+                    if (timedOut) {
+                        reporter.timedOut(LintRun.this.timeout);
+                    } else {
+                        reporter.done();
+                    }
+                }
+            }
+
+            @Override
+            public void timedOut(long timeout) {
+                disarm();
+
+                if (!cancelled && ended.compareAndSet(false, true)) {
+                    reporter.timedOut(timeout);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the reporter the run should report to
+     */
+    ErrorReporter reporter() {
+        return reporter;
+    }
+
+    LintRun start(Future<Integer> delegate) {
+        this.delegate = delegate;
+
+        if (cancelled) {
+            delegate.cancel(true);
+        }
+
+        return this;
+    }
+
+    /**
+     * The process of the run started, the timeout starts now.
+     */
+    void started(Process process) {
+        this.process = process;
+
+        if (cancelled) {
+            kill();
+        } else {
+            arm(this::kill);
+        }
+    }
+
+    /**
+     * The run started without a process of its own, e.g. in the daemon.
+     *
+     * @param stop stops the run when it times out
+     */
+    void started(Runnable stop) {
+        arm(stop);
+    }
+
+    private void arm(Runnable stop) {
+        if (timeout > 0) {
+            timer = TIMEOUTS.post(() -> expire(stop), (int) Math.min(Integer.MAX_VALUE, timeout));
+        }
+    }
+
+    private void disarm() {
+        final RequestProcessor.Task task = timer;
+
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private void expire(Runnable stop) {
+        if (cancelled || ended.get() || isDone()) {
+            return;
+        }
+
+        LOG.log(Level.WARNING, "ESLint run did not finish within {0} ms, stopping it", timeout);
+        timedOut = true;
+        reporter.timedOut(timeout);
+        stop.run();
+    }
+
+    /**
+     * @return true if the run was stopped by its timeout
+     */
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (cancelled || isDone()) {
+            return false;
+        }
+
+        cancelled = true;
+        disarm();
+        kill();
+
+        Future<Integer> future = delegate;
+
+        if (future != null) {
+            future.cancel(mayInterruptIfRunning);
+        }
+
+        return true;
+    }
+
+    private void kill() {
+        Process running = process;
+
+        if (running != null && running.isAlive()) {
+            LOG.log(Level.FINE, "Killing ESLint process {0}", running);
+            Processes.killTree(running, Collections.<String, String>emptyMap());
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        Future<Integer> future = delegate;
+
+        return cancelled || (future != null && future.isDone());
+    }
+
+    @Override
+    public Integer get() throws InterruptedException, ExecutionException {
+        return delegate.get();
+    }
+
+    @Override
+    public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.get(timeout, unit);
+    }
+}
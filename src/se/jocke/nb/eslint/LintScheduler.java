@@ -0,0 +1,431 @@
+package se.jocke.nb.eslint;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.openide.filesystems.FileObject;
+import org.openide.loaders.DataObject;
+import org.openide.util.RequestProcessor;
+import org.openide.windows.TopComponent;
+import org.openide.windows.WindowManager;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
+
+/**
+ * Starts ESLint processes in priority order with a limit on how many run at
+ * the same time, see the maxProcesses option. A queued run of a higher
+ * priority overtakes all queued runs of lower priority, and one slot is kept
+ * free of background and explicit runs so that an editor never waits for a
+ * project scan to finish a chunk. Runs of the same priority start in the
+ * order they were submitted.
+ * <p>
+ * While more runs are queued than {@link #COLLAPSE_THRESHOLD}, a new single
+ * file run joins a queued single file run of the same project and priority.
+ * They are linted together by one process once it starts, which bounds the
+ * queue when e.g. a branch switch changes thousands of files.
+ *
+ * @author jocke
+ */
+final class LintScheduler {
+
+    static final int COLLAPSE_THRESHOLD = 8;
+
+    private static final Logger LOG = Logger.getLogger(LintScheduler.class.getName());
+    private static final LintScheduler DEFAULT = new LintScheduler(() -> ESLintOptionsModel.getDefault().getSnapshot().getMaxProcesses(), new FocusTracker());
+
+    private final RequestProcessor rp = new RequestProcessor(LintScheduler.class.getName(), Integer.MAX_VALUE);
+    private final IntSupplier limit;
+    private final Predicate<FileObject> focused;
+    private final List<Job> pending = new ArrayList<>();
+    private int running;
+    private long submitted;
+
+    LintScheduler(IntSupplier limit, Predicate<FileObject> focused) {
+        this.limit = limit;
+        this.focused = focused;
+    }
+
+    static LintScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param priority how urgent the run is
+     * @param file the file linted by an editor run, to tell whether its editor
+     * has the focus, or {@code null}
+     * @param start starts the run once a slot is free
+     * @return the run, cancelling it while queued removes it from the queue
+     */
+    Future<Integer> submit(LintPriority priority, FileObject file, Supplier<Future<Integer>> start) {
+        return submit(new Job(priority, file, start, null));
+    }
+
+    /**
+     * Submit the run of a single file that may be linted together with other
+     * files of the same group if the queue is long.
+     *
+     * @param group the files that can be linted by one process, e.g. the
+     * working directory
+     * @param path the absolute path of the file
+     * @param reporter receives the results of the file
+     * @param start starts a run of the paths reporting to the reporter
+     * @return the run
+     */
+    Future<Integer> submit(LintPriority priority, FileObject file, String group, String path, ErrorReporter reporter,
+            BiFunction<List<String>, ErrorReporter, Future<Integer>> start) {
+        return submit(new Job(priority, file, () -> start.apply(Collections.singletonList(path), reporter),
+                new Collapsible(group, path, reporter, start)));
+    }
+
+    private Future<Integer> submit(Job job) {
+        synchronized (this) {
+            job.sequence = submitted++;
+
+            final Job leader = job.collapsible != null && pending.size() >= COLLAPSE_THRESHOLD ? findLeader(job) : null;
+
+            if (leader != null) {
+                leader.members.add(job);
+                job.leader = leader;
+                LOG.log(Level.FINE, "Collapsed {0} into a queued run of {1} files", new Object[]{job.collapsible.path, leader.members.size() + 1});
+                return job;
+            }
+
+            pending.add(job);
+        }
+
+        dispatch();
+
+        return job;
+    }
+
+    private Job findLeader(Job job) {
+        for (Job candidate : pending) {
+            if (candidate.collapsible != null && candidate.priority == job.priority && candidate.collapsible.group.equals(job.collapsible.group)) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Make a queued run more urgent, e.g. when an editor joins a run started
+     * by a background scan. A run already started or of the same or a higher
+     * priority is left as it is.
+     *
+     * @param run a run returned by submit
+     */
+    void raise(Future<Integer> run, LintPriority priority) {
+        if (!(run instanceof Job)) {
+            return;
+        }
+
+        synchronized (this) {
+            final Job job = ((Job) run).leader != null ? ((Job) run).leader : (Job) run;
+
+            if (!pending.contains(job) || priority.compareTo(job.priority) >= 0) {
+                return;
+            }
+
+            LOG.log(Level.FINE, "Raising queued run {0} from {1} to {2}", new Object[]{job.sequence, job.priority, priority});
+            job.priority = priority;
+        }
+
+        dispatch();
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of queued runs, files collapsed into a queued run
+     * are not counted
+     */
+    synchronized int getQueued() {
+        return pending.size();
+    }
+
+    private void dispatch() {
+        final List<Job> started = new ArrayList<>();
+
+        synchronized (this) {
+            Job next;
+
+            while ((next = next()) != null) {
+                pending.remove(next);
+                running++;
+                started.add(next);
+            }
+        }
+
+        started.forEach(job -> rp.post(job::run));
+    }
+
+    /**
+     * @return the most urgent queued job allowed to start now or {@code null}
+     */
+    private Job next() {
+        final int max = Math.max(1, limit.getAsInt());
+
+        if (running >= max) {
+            return null;
+        }
+
+        Job best = null;
+        LintPriority bestPriority = null;
+
+        for (Job job : pending) {
+            final LintPriority priority = effectivePriority(job);
+
+            if (bestPriority == null || priority.compareTo(bestPriority) < 0) {
+                best = job;
+                bestPriority = priority;
+            }
+        }
+
+        if (best != null && !bestPriority.isEditor() && max > 1 && running >= max - 1) {
+            return null;
+        }
+
+        return best;
+    }
+
+    private LintPriority effectivePriority(Job job) {
+        if (job.priority == LintPriority.OPEN_EDITOR && job.file != null && focused.test(job.file)) {
+            return LintPriority.FOCUSED_EDITOR;
+        }
+
+        return job.priority;
+    }
+
+    private void finished() {
+        synchronized (this) {
+            running--;
+        }
+
+        dispatch();
+    }
+
+    private final class Job implements Future<Integer> {
+
+        // Guarded by the scheduler, raised while queued
+        private LintPriority priority;
+        private final FileObject file;
+        private final Supplier<Future<Integer>> start;
+        private final Collapsible collapsible;
+        private final List<Job> members = new ArrayList<>();
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private long sequence;
+        private Job leader;
+        private Future<Integer> run;
+
+        Job(LintPriority priority, FileObject file, Supplier<Future<Integer>> start, Collapsible collapsible) {
+            this.priority = priority;
+            this.file = file;
+            this.start = start;
+            this.collapsible = collapsible;
+        }
+
+        private void run() {
+            final List<Job> jobs = new ArrayList<>();
+
+            synchronized (LintScheduler.this) {
+                jobs.add(this);
+                jobs.addAll(members);
+            }
+
+            jobs.removeIf(Job::isDone);
+
+            try {
+                if (jobs.isEmpty()) {
+                    return;
+                }
+
+                final Future<Integer> started = jobs.size() == 1 && jobs.get(0) == this ? start.get() : startCollapsed(jobs);
+
+                synchronized (LintScheduler.this) {
+                    run = started;
+                }
+
+                if (started == null) {
+                    jobs.forEach(job -> job.result.complete(null));
+                    return;
+                }
+
+                if (jobs.stream().allMatch(Job::isCancelled)) {
+                    started.cancel(true);
+                }
+
+                final Integer exitCode = started.get();
+                jobs.forEach(job -> job.result.complete(exitCode));
+            } catch (CancellationException ex) {
+                jobs.forEach(job -> job.result.cancel(false));
+            } catch (ExecutionException ex) {
+                jobs.forEach(job -> job.result.completeExceptionally(ex.getCause()));
+            } catch (InterruptedException ex) {
+                jobs.forEach(job -> job.result.cancel(false));
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "Failed to start ESLint", ex);
+                jobs.forEach(job -> job.result.completeExceptionally(ex));
+            } finally {
+                LOG.log(Level.FINE, "Run {0} ({1}) of {2} files finished", new Object[]{sequence, priority, jobs.size()});
+                finished();
+            }
+        }
+
+        private Future<Integer> startCollapsed(List<Job> jobs) {
+            final Map<String, List<Job>> byPath = new LinkedHashMap<>();
+
+            // The same file changed twice while queued is linted once
+            jobs.forEach(job -> byPath.computeIfAbsent(job.collapsible.path, path -> new ArrayList<>()).add(job));
+
+            return collapsible.start.apply(new ArrayList<>(byPath.keySet()), new ErrorReporter() {
+                @Override
+                public void handle(LintError error) {
+                    reporters(error.getFile()).forEach(reporter -> reporter.handle(error));
+                }
+
+                @Override
+                public void fileDone(String path) {
+                    reporters(path).forEach(reporter -> reporter.fileDone(path));
+                }
+
+                @Override
+                public void done() {
+                    jobs.stream().filter(job -> !job.isCancelled()).forEach(job -> job.collapsible.reporter.done());
+                }
+
+                @Override
+                public void timedOut(long timeout) {
+                    jobs.stream().filter(job -> !job.isCancelled()).forEach(job -> job.collapsible.reporter.timedOut(timeout));
+                }
+
+                private Stream<ErrorReporter> reporters(String path) {
+                    return byPath.getOrDefault(path, Collections.emptyList()).stream()
+                            .filter(job -> !job.isCancelled())
+                            .map(job -> job.collapsible.reporter);
+                }
+            });
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final Future<Integer> started;
+
+            synchronized (LintScheduler.this) {
+                if (leader != null) {
+                    // Other files share the run, only this one is dropped
+                    leader.members.remove(this);
+                    return result.cancel(false);
+                }
+
+                if (pending.remove(this)) {
+                    // The files that joined this run are queued on their own again
+                    if (!members.isEmpty()) {
+                        final Job next = members.remove(0);
+                        next.leader = null;
+                        next.members.addAll(members);
+                        next.members.forEach(member -> member.leader = next);
+                        members.clear();
+                        pending.add(next);
+                    }
+
+                    return result.cancel(false);
+                }
+
+                started = members.isEmpty() ? run : null;
+            }
+
+            if (started != null) {
+                started.cancel(mayInterruptIfRunning);
+            }
+
+            return result.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public Integer get() throws InterruptedException, ExecutionException {
+            return result.get();
+        }
+
+        @Override
+        public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+    }
+
+    private static final class Collapsible {
+
+        private final String group;
+        private final String path;
+        private final ErrorReporter reporter;
+        private final BiFunction<List<String>, ErrorReporter, Future<Integer>> start;
+
+        Collapsible(String group, String path, ErrorReporter reporter, BiFunction<List<String>, ErrorReporter, Future<Integer>> start) {
+            this.group = group;
+            this.path = path;
+            this.reporter = reporter;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Remembers the file of the editor that was activated last, activating
+     * another window does not take the focus from it.
+     */
+    private static final class FocusTracker implements PropertyChangeListener, Predicate<FileObject> {
+
+        private volatile FileObject focused;
+
+        FocusTracker() {
+            TopComponent.getRegistry().addPropertyChangeListener(this);
+        }
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            if (TopComponent.Registry.PROP_ACTIVATED.equals(evt.getPropertyName())) {
+                final TopComponent activated = TopComponent.getRegistry().getActivated();
+
+                if (activated != null && WindowManager.getDefault().isEditorTopComponent(activated)) {
+                    final DataObject dataObject = activated.getLookup().lookup(DataObject.class);
+                    focused = dataObject != null ? dataObject.getPrimaryFile() : null;
+                }
+            }
+        }
+
+        @Override
+        public boolean test(FileObject file) {
+            return file.equals(focused);
+        }
+    }
+}
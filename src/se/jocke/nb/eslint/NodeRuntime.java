@@ -0,0 +1,297 @@
+package se.jocke.nb.eslint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.netbeans.api.extexecution.base.Environment;
+import org.openide.modules.Places;
+import se.jocke.nb.eslint.ui.options.ESLintOptions;
+import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
+
+/**
+ * The environment of the node processes running ESLint. Node 22.1 and later
+ * keep the compiled code of eslint, parsers and plugins in the directory given
+ * by NODE_COMPILE_CACHE, so that every process after the first skips compiling
+ * them. The directory is kept per node version under the IDE cache directory.
+ * The heap limit and extra node options of the options are passed with
+ * NODE_OPTIONS, after any NODE_OPTIONS the IDE was started with.
+ *
+ * @author jocke
+ */
+public final class NodeRuntime {
+
+    static final String NODE_COMPILE_CACHE = "NODE_COMPILE_CACHE"; // NOI18N
+    static final String NODE_OPTIONS = "NODE_OPTIONS"; // NOI18N
+
+    private static final Logger LOG = Logger.getLogger(NodeRuntime.class.getName());
+    private static final Pattern VERSION = Pattern.compile("v?(\\d+)\\.(\\d+)\\.\\d+.*"); // NOI18N
+    private static final Map<String, String> VERSIONS = new ConcurrentHashMap<>();
+    private static final int MEASURED_RUNS = 3;
+
+    private NodeRuntime() {
+    }
+
+    /**
+     * Set the variables of the current options on the environment of a
+     * process about to start.
+     *
+     * @param node the node running ESLint or {@code null} if not known
+     */
+    static void configure(Environment environment, String node) {
+        variables(node, ESLintOptionsModel.getDefault().getSnapshot(), environment.getVariable(NODE_OPTIONS))
+                .forEach(environment::setVariable);
+    }
+
+    /**
+     * @param inherited the NODE_OPTIONS the IDE was started with or
+     * {@code null}
+     * @return the variables to set, none if the options leave node as it is
+     */
+    static Map<String, String> variables(String node, ESLintOptions options, String inherited) {
+        final Map<String, String> variables = new LinkedHashMap<>();
+
+        if (options.isNodeCompileCache()) {
+            final File cache = compileCache(node);
+
+            if (cache != null) {
+                variables.put(NODE_COMPILE_CACHE, cache.getAbsolutePath());
+            }
+        }
+
+        final String nodeOptions = nodeOptions(inherited, options.getNodeMaxOldSpaceSize(), options.getNodeOptions());
+
+        if (!nodeOptions.equals(inherited == null ? "" : inherited.trim())) {
+            variables.put(NODE_OPTIONS, nodeOptions);
+        }
+
+        return variables;
+    }
+
+    /**
+     * @param inherited the NODE_OPTIONS the IDE was started with or
+     * {@code null}
+     * @param maxOldSpaceSize the heap limit in MB, 0 for the default of node
+     * @param extra node options to add
+     * @return the NODE_OPTIONS, later options win in node
+     */
+    static String nodeOptions(String inherited, int maxOldSpaceSize, String extra) {
+        final List<String> options = new ArrayList<>();
+
+        if (inherited != null && !inherited.trim().isEmpty()) {
+            options.add(inherited.trim());
+        }
+
+        if (maxOldSpaceSize > 0) {
+            options.add("--max-old-space-size=" + maxOldSpaceSize); // NOI18N
+        }
+
+        if (extra != null && !extra.trim().isEmpty()) {
+            options.add(extra.trim());
+        }
+
+        return String.join(" ", options);
+    }
+
+    /**
+     * @return the compile cache directory of the node or {@code null} if the
+     * node does not support a compile cache
+     */
+    static File compileCache(String node) {
+        final String version = node != null ? version(node) : "";
+
+        if (!supportsCompileCache(version)) {
+            return null;
+        }
+
+        return Places.getCacheSubdirectory("eslint/node-compile-cache/" + version); // NOI18N
+    }
+
+    /**
+     * @param version as printed by node --version, e.g. v22.3.0
+     * @return true if the version reads NODE_COMPILE_CACHE, 22.1 and later
+     */
+    static boolean supportsCompileCache(String version) {
+        final Matcher matcher = VERSION.matcher(version);
+
+        if (!matcher.matches()) {
+            return false;
+        }
+
+        final int major = Integer.parseInt(matcher.group(1));
+        final int minor = Integer.parseInt(matcher.group(2));
+
+        return major > 22 || (major == 22 && minor >= 1);
+    }
+
+    /**
+     * Asked once per node binary, an upgraded binary is asked again.
+     *
+     * @return the version of the node, e.g. v22.3.0, or an empty string
+     */
+    static String version(String node) {
+        final String key = node + '\0' + new File(node).lastModified();
+
+        return VERSIONS.computeIfAbsent(key, k -> {
+            try {
+                final Process process = new java.lang.ProcessBuilder(node, "--version").redirectErrorStream(true).start(); // NOI18N
+
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    final String line = reader.readLine();
+
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+
+                    return line != null ? line.trim() : "";
+                }
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "Can not get the version of " + node, ex);
+                return "";
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return "";
+            }
+        });
+    }
+
+    /**
+     * Time ESLint printing its version, which loads the CLI and its
+     * dependencies, with and without the compile cache. Blocks for a few
+     * seconds, do not call on the event thread.
+     *
+     * @param eslintPath the ESLint CLI to measure
+     * @return the startup times or {@code null} if ESLint can not be started
+     */
+    public static StartupTime measureStartup(String eslintPath) {
+        final ESLintExecutable executable = ESLintExecutable.resolve(eslintPath, null);
+        final String node = executable.isDirect() ? executable.getNode() : ESLintExecutable.findNode(eslintPath);
+        final ESLintOptions options = ESLintOptionsModel.getDefault().getSnapshot();
+        final String inherited = System.getenv(NODE_OPTIONS);
+        final File cache = node != null ? compileCache(node) : null;
+
+        final List<String> command = new ArrayList<>();
+        command.add(executable.getExecutable());
+        command.addAll(executable.getArguments());
+        command.add("--version"); // NOI18N
+
+        final Map<String, String> without = new LinkedHashMap<>();
+        without.put(NODE_OPTIONS, nodeOptions(inherited, options.getNodeMaxOldSpaceSize(), options.getNodeOptions()));
+
+        final Map<String, String> with = new LinkedHashMap<>(without);
+
+        if (cache != null) {
+            with.put(NODE_COMPILE_CACHE, cache.getAbsolutePath());
+        }
+
+        try {
+            // Fills the cache and the file system cache
+            run(command, with);
+
+            long withoutCache = Long.MAX_VALUE;
+            long withCache = Long.MAX_VALUE;
+
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                withoutCache = Math.min(withoutCache, run(command, without));
+                withCache = Math.min(withCache, run(command, with));
+            }
+
+            LOG.log(Level.INFO, "ESLint started in {0} ms without and {1} ms with the compile cache {2}", new Object[]{withoutCache, withCache, cache});
+
+            return new StartupTime(node != null ? version(node) : "", cache != null, withoutCache, withCache);
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Can not start " + command, ex);
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * @return the milliseconds until the process exited
+     */
+    private static long run(List<String> command, Map<String, String> variables) throws IOException, InterruptedException {
+        final java.lang.ProcessBuilder builder = new java.lang.ProcessBuilder(command).redirectErrorStream(true);
+        final Map<String, String> environment = builder.environment();
+        environment.remove(NODE_COMPILE_CACHE);
+        environment.putAll(variables);
+
+        final long start = System.nanoTime();
+        final Process process = builder.start();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            while (reader.readLine() != null) {
+                // Drain the version
+            }
+        }
+
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("Timed out running " + String.join(" ", command));
+        }
+
+        if (process.exitValue() != 0) {
+            throw new IOException("Exit code " + process.exitValue() + " running " + String.join(" ", command));
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * How long ESLint takes to start, the fastest of a few runs.
+     */
+    public static final class StartupTime {
+
+        private final String nodeVersion;
+        private final boolean compileCache;
+        private final long withoutCache;
+        private final long withCache;
+
+        StartupTime(String nodeVersion, boolean compileCache, long withoutCache, long withCache) {
+            this.nodeVersion = nodeVersion;
+            this.compileCache = compileCache;
+            this.withoutCache = withoutCache;
+            this.withCache = withCache;
+        }
+
+        /**
+         * @return the node version, e.g. v22.3.0, or an empty string
+         */
+        public String getNodeVersion() {
+            return nodeVersion;
+        }
+
+        /**
+         * @return true if the node supports a compile cache
+         */
+        public boolean isCompileCache() {
+            return compileCache;
+        }
+
+        /**
+         * @return the milliseconds without the compile cache
+         */
+        public long getWithoutCache() {
+            return withoutCache;
+        }
+
+        /**
+         * @return the milliseconds with the compile cache
+         */
+        public long getWithCache() {
+            return withCache;
+        }
+    }
+}
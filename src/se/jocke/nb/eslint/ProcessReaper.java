@@ -0,0 +1,75 @@
+package se.jocke.nb.eslint;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.extexecution.base.Processes;
+
+/**
+ * Keeps track of the ESLint and daemon processes started by the plugin. A
+ * process still alive when the IDE exits was orphaned, e.g. by a run that
+ * hangs without a timeout, it is reported and its process tree killed.
+ *
+ * @author jocke
+ */
+final class ProcessReaper {
+
+    private static final Logger LOG = Logger.getLogger(ProcessReaper.class.getName());
+    private static final Map<Process, String> PROCESSES = new ConcurrentHashMap<>();
+
+    private ProcessReaper() {
+    }
+
+    /**
+     * @param commandLine what the process runs, for the report
+     */
+    static void register(Process process, String commandLine) {
+        // Finished processes are dropped here, Java 8 has no exit callback
+        PROCESSES.keySet().removeIf(running -> !running.isAlive());
+        PROCESSES.put(process, commandLine);
+    }
+
+    /**
+     * A process that was stopped on purpose is not reported.
+     */
+    static void unregister(Process process) {
+        PROCESSES.remove(process);
+    }
+
+    /**
+     * @return the number of processes still alive
+     */
+    static int size() {
+        PROCESSES.keySet().removeIf(running -> !running.isAlive());
+        return PROCESSES.size();
+    }
+
+    /**
+     * Kill the process trees of all processes still alive.
+     *
+     * @return the number of orphaned processes
+     */
+    static int reap() {
+        int orphans = 0;
+
+        for (Map.Entry<Process, String> entry : PROCESSES.entrySet()) {
+            final Process process = entry.getKey();
+
+            if (process.isAlive()) {
+                LOG.log(Level.WARNING, "Killing orphaned ESLint process {0}", entry.getValue());
+                Processes.killTree(process, Collections.<String, String>emptyMap());
+                orphans++;
+            }
+        }
+
+        PROCESSES.clear();
+
+        if (orphans > 0) {
+            LOG.log(Level.WARNING, "{0} ESLint processes were still running at shutdown", orphans);
+        }
+
+        return orphans;
+    }
+}
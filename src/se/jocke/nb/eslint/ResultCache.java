@@ -0,0 +1,227 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.FileResult;
+import se.jocke.nb.eslint.error.LintError;
+
+/**
+ * Results of earlier runs keyed by file path, content hash and a fingerprint
+ * of the effective ESLint setup. A file whose content and setup are unchanged
+ * is not linted again, its errors are replayed instead. The least recently used
+ * entries are evicted once the cache holds more than the given number of
+ * files. Results are kept as compact {@link FileResult}s.
+ *
+ * @author jocke
+ */
+public final class ResultCache {
+
+    private static final Logger LOG = Logger.getLogger(ResultCache.class.getName());
+    private static final ResultCache DEFAULT = new ResultCache(2000);
+
+    private final int maxEntries;
+    private final Map<String, CachedResult> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ResultCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static ResultCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Look up a result in memory and then in the store of the project.
+     *
+     * @param store the persistent store or {@code null}
+     * @return the cached result or {@code null} on a miss
+     */
+    FileResult get(String path, long hash, String fingerprint, ResultStore store) {
+        CachedResult entry;
+
+        synchronized (entries) {
+            entry = entries.get(path);
+        }
+
+        if (entry != null && entry.hash == hash && entry.fingerprint.equals(fingerprint)) {
+            hits.incrementAndGet();
+            return entry.result;
+        }
+
+        final FileResult stored = store != null ? store.get(path, hash, fingerprint) : null;
+
+        if (stored != null) {
+            hits.incrementAndGet();
+            put(path, hash, fingerprint, stored, null);
+            return stored;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param store the persistent store or {@code null}
+     */
+    void put(String path, long hash, String fingerprint, FileResult result, ResultStore store) {
+        final CachedResult entry = new CachedResult(hash, fingerprint, result);
+
+        synchronized (entries) {
+            entries.put(path, entry);
+        }
+
+        if (store != null) {
+            store.put(path, hash, fingerprint, result);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return number of files in the cache
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups that required an ESLint run
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Wrap a reporter so that results are stored when they arrive. Files
+     * without a hash are passed through only.
+     *
+     * @param store the persistent store or {@code null}
+     * @param hashes content hash by path, taken before the run started
+     */
+    ErrorReporter recording(final ErrorReporter reporter, final ResultStore store, final Function<String, Long> hashes, final String fingerprint) {
+        return new ErrorReporter() {
+            // Chunks of a batch report concurrently, but every file from a single run
+            private final Map<String, FileResult.Builder> errors = new ConcurrentHashMap<>();
+
+            @Override
+            public void handle(LintError error) {
+                errors.computeIfAbsent(error.getFile(), FileResult.Builder::new).add(error);
+                reporter.handle(error);
+            }
+
+            @Override
+            public void fileDone(String file) {
+                final FileResult.Builder fileErrors = errors.remove(file);
+                final Long hash = hashes.apply(file);
+
+                if (hash != null) {
+                    put(file, hash, fingerprint, fileErrors != null ? fileErrors.build() : FileResult.empty(file), store);
+                }
+
+                reporter.fileDone(file);
+            }
+
+            @Override
+            public void done() {
+                errors.clear();
+                reporter.done();
+            }
+
+            @Override
+            public void timedOut(long timeout) {
+                // Files not done have partial results at most, they are not stored
+                errors.clear();
+                reporter.timedOut(timeout);
+            }
+        };
+    }
+
+    /**
+     * Hash a file that was linted by a run whose targets were not known up
+     * front, like a folder scan. A file modified after the run started may
+     * have been linted with other content and is not hashed.
+     *
+     * @param started when the run started
+     * @return the hash or {@code null}
+     */
+    static Long hashUnmodifiedSince(String path, long started) {
+        final File file = new File(path);
+
+        // Allow for file systems that store the time in seconds
+        if (file.lastModified() + 1000 > started) {
+            return null;
+        }
+
+        return hash(file.toPath());
+    }
+
+    /**
+     * @return hash of the file content or {@code null} if it can not be read
+     */
+    static Long hash(Path file) {
+        try {
+            return hash(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Can not hash " + file, ex);
+            return null;
+        }
+    }
+
+    static long hash(String text) {
+        return hash(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long hash(byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        // The length makes a collision of two versions of the same file even less likely
+        return ((long) content.length << 32) | crc.getValue();
+    }
+
+    private static final class CachedResult {
+
+        private final long hash;
+        private final String fingerprint;
+        private final FileResult result;
+
+        CachedResult(long hash, String fingerprint, FileResult result) {
+            this.hash = hash;
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package se.jocke.nb.eslint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.modules.Places;
+import org.openide.util.RequestProcessor;
+import se.jocke.nb.eslint.error.FileResult;
+
+/**
+ * Lint results of one project persisted in the IDE cache directory so they
+ * survive a restart. The store file is memory mapped and only an index of the
+ * paths is kept on the heap, results are decoded when asked for. Fingerprints
+ * and messages are written once to a string pool and referenced by index.
+ * Decoded messages are shared through the {@link se.jocke.nb.eslint.error.StringPool}.
+ * <p>
+ * New results are kept in memory and written a few seconds after the last
+ * change, and when the IDE exits. They are appended to a journal next to the
+ * store file. Once the journal holds more superseded and removed entries than
+ * live ones, the live entries are compacted into a new generation of the store
+ * file since a mapped file can not be replaced on all platforms.
+ *
+ * @author jocke
+ */
+final class ResultStore {
+
+    private static final Logger LOG = Logger.getLogger(ResultStore.class.getName());
+    private static final Map<String, ResultStore> STORES = new ConcurrentHashMap<>();
+    private static final RequestProcessor RP = new RequestProcessor(ResultStore.class.getName(), 1);
+    private static final int MAGIC = 0x45534C52; // ESLR
+    private static final int VERSION = 1;
+    private static final int FLUSH_DELAY = 5000;
+    private static final String SUFFIX = ".bin"; // NOI18N
+    private static final String JOURNAL_SUFFIX = ".log"; // NOI18N
+    private static final StoredResult REMOVED = new StoredResult(0, "", null);
+
+    private final Path directory;
+    private final String project;
+    private final String name;
+    private final RequestProcessor.Task flushTask;
+
+    private boolean loaded;
+    private int generation;
+    private ByteBuffer mapped;
+    private ByteBuffer journal;
+    private int dead;
+    private String[] pool = new String[0];
+    private final Map<String, Integer> index = new HashMap<>();
+    private final Map<String, Integer> appended = new HashMap<>();
+    private final Map<String, StoredResult> pending = new LinkedHashMap<>();
+
+    ResultStore(Path directory, String project) {
+        this.directory = directory;
+        this.project = project;
+        this.name = Long.toHexString(ResultCache.hash(project));
+        this.flushTask = RP.create(this::flush);
+    }
+
+    /**
+     * @param projectDirectory absolute path of the project
+     * @return the store of the project
+     */
+    static ResultStore get(String projectDirectory) {
+        return STORES.computeIfAbsent(projectDirectory, dir -> new ResultStore(Places.getCacheSubdirectory("eslint/results").toPath(), dir)); // NOI18N
+    }
+
+    static void flushAll() {
+        STORES.values().forEach(ResultStore::flush);
+    }
+
+    /**
+     * @return the stored result or {@code null} if the file is not stored with
+     * the given hash and fingerprint
+     */
+    synchronized FileResult get(String path, long hash, String fingerprint) {
+        load();
+
+        StoredResult result = pending.get(path);
+
+        if (result == null) {
+            result = read(path);
+        }
+
+        if (result != null && result != REMOVED && result.hash == hash && result.fingerprint.equals(fingerprint)) {
+            return result.result;
+        }
+
+        return null;
+    }
+
+    synchronized void put(String path, long hash, String fingerprint, FileResult result) {
+        pending.put(path, new StoredResult(hash, fingerprint, result));
+        flushTask.schedule(FLUSH_DELAY);
+    }
+
+    /**
+     * Forget the results of files that no longer exist.
+     */
+    synchronized void remove(Collection<String> paths) {
+        load();
+
+        boolean removed = false;
+
+        for (String path : paths) {
+            if (pending.containsKey(path) || index.containsKey(path) || appended.containsKey(path)) {
+                pending.put(path, REMOVED);
+                removed = true;
+            }
+        }
+
+        if (removed) {
+            flushTask.schedule(FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * @return the paths of all stored files
+     */
+    synchronized Set<String> paths() {
+        load();
+
+        Set<String> paths = new LinkedHashSet<>(index.keySet());
+        paths.addAll(appended.keySet());
+        pending.forEach((path, result) -> {
+            if (result == REMOVED) {
+                paths.remove(path);
+            } else {
+                paths.add(path);
+            }
+        });
+
+        return paths;
+    }
+
+    /**
+     * Append pending results to the journal, or compact the store if that
+     * would leave more dead entries than live ones.
+     */
+    synchronized void flush() {
+        load();
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int superseded = dead;
+
+        for (Map.Entry<String, StoredResult> entry : pending.entrySet()) {
+            if (index.containsKey(entry.getKey()) || appended.containsKey(entry.getKey())) {
+                superseded++;
+            }
+
+            if (entry.getValue() == REMOVED) {
+                superseded++;
+            }
+        }
+
+        try {
+            Files.createDirectories(directory);
+
+            if (mapped == null || superseded > index.size() + appended.size()) {
+                compact();
+            } else {
+                append();
+            }
+
+            pending.clear();
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Failed to store results for " + project, ex);
+        }
+    }
+
+    private void append() throws IOException {
+        final Path file = directory.resolve(name + '.' + generation + JOURNAL_SUFFIX);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Map.Entry<String, StoredResult> entry : pending.entrySet()) {
+                writeRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+
+        final int start;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            start = (int) channel.size();
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+
+        mapJournal(file, start);
+
+        LOG.log(Level.FINE, "Appended results of {0} files for {1}", new Object[]{pending.size(), project});
+    }
+
+    /**
+     * Write the live results to a new generation of the store.
+     */
+    private void compact() throws IOException {
+        final Map<String, StoredResult> results = new LinkedHashMap<>();
+
+        final List<String> stored = new ArrayList<>(index.keySet());
+        stored.addAll(appended.keySet());
+
+        for (String path : stored) {
+            if (!pending.containsKey(path)) {
+                final StoredResult result = read(path);
+
+                if (result != null) {
+                    results.put(path, result);
+                }
+            }
+        }
+
+        pending.forEach((path, result) -> {
+            if (result != REMOVED) {
+                results.put(path, result);
+            }
+        });
+
+        final Path target = directory.resolve(name + '.' + (generation + 1) + SUFFIX);
+        final Path temp = directory.resolve(name + ".tmp"); // NOI18N
+
+        Files.write(temp, write(results));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+
+        map(target, generation + 1);
+        deleteOldGenerations();
+
+        LOG.log(Level.FINE, "Stored results of {0} files for {1}", new Object[]{results.size(), project});
+    }
+
+    private byte[] write(Map<String, StoredResult> results) throws IOException {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        for (StoredResult result : results.values()) {
+            strings.putIfAbsent(result.fingerprint, strings.size());
+
+            for (int i = 0; i < result.result.size(); i++) {
+                if (result.result.getMessage(i) != null) {
+                    strings.putIfAbsent(result.result.getMessage(i), strings.size());
+                }
+            }
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, project);
+            out.writeInt(strings.size());
+
+            for (String string : strings.keySet()) {
+                writeString(out, string);
+            }
+
+            out.writeInt(results.size());
+
+            for (Map.Entry<String, StoredResult> entry : results.entrySet()) {
+                final StoredResult result = entry.getValue();
+
+                writeString(out, entry.getKey());
+                out.writeLong(result.hash);
+                out.writeInt(strings.get(result.fingerprint));
+                out.writeInt(result.result.size());
+
+                for (int i = 0; i < result.result.size(); i++) {
+                    out.writeInt(result.result.getLine(i));
+                    out.writeInt(result.result.getStartCol(i));
+                    out.writeInt(result.result.getEndCol(i));
+                    out.writeByte(result.result.getSeverity(i));
+                    out.writeInt(result.result.getMessage(i) != null ? strings.get(result.result.getMessage(i)) : -1);
+                }
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * A journal record holds its strings itself, it is written without
+     * rewriting the pool of the store file.
+     */
+    private static void writeRecord(DataOutputStream out, String path, StoredResult result) throws IOException {
+        writeString(out, path);
+        out.writeBoolean(result != REMOVED);
+
+        if (result == REMOVED) {
+            return;
+        }
+
+        out.writeLong(result.hash);
+        writeString(out, result.fingerprint);
+        out.writeInt(result.result.size());
+
+        for (int i = 0; i < result.result.size(); i++) {
+            out.writeInt(result.result.getLine(i));
+            out.writeInt(result.result.getStartCol(i));
+            out.writeInt(result.result.getEndCol(i));
+            out.writeByte(result.result.getSeverity(i));
+            out.writeBoolean(result.result.getMessage(i) != null);
+
+            if (result.result.getMessage(i) != null) {
+                writeString(out, result.result.getMessage(i));
+            }
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+
+        int latest = 0;
+        for (Path file : files()) {
+            latest = Math.max(latest, generationOf(file));
+        }
+
+        if (latest > 0) {
+            try {
+                map(directory.resolve(name + '.' + latest + SUFFIX), latest);
+
+                final Path file = directory.resolve(name + '.' + latest + JOURNAL_SUFFIX);
+
+                if (Files.exists(file)) {
+                    mapJournal(file, 0);
+                }
+            } catch (IOException | RuntimeException ex) {
+                LOG.log(Level.INFO, "Discarding unreadable result store of " + project, ex);
+                index.clear();
+                appended.clear();
+                mapped = null;
+                journal = null;
+                generation = latest;
+            }
+        }
+    }
+
+    private void map(Path file, int fileGeneration) throws IOException {
+        final ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        generation = fileGeneration;
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !project.equals(readString(buffer))) {
+            throw new IOException("Not a result store of " + project);
+        }
+
+        final String[] strings = new String[buffer.getInt()];
+
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(buffer);
+        }
+
+        final Map<String, Integer> paths = new HashMap<>();
+        final int count = buffer.getInt();
+
+        for (int i = 0; i < count; i++) {
+            final String path = readString(buffer);
+            paths.put(path, buffer.position());
+
+            buffer.position(buffer.position() + Long.BYTES + Integer.BYTES);
+            final int errors = buffer.getInt();
+            buffer.position(buffer.position() + errors * (4 * Integer.BYTES + 1));
+        }
+
+        pool = strings;
+        index.clear();
+        index.putAll(paths);
+        mapped = buffer;
+        appended.clear();
+        journal = null;
+        dead = 0;
+    }
+
+    /**
+     * Map the journal and index its records from the given offset on. A
+     * record cut off by a crash is dropped together with the rest of the file.
+     */
+    private void mapJournal(Path file, int start) throws IOException {
+        final ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            buffer.position(start);
+
+            while (buffer.hasRemaining()) {
+                final int record = buffer.position();
+
+                try {
+                    final String path = readString(buffer);
+                    final boolean removed = buffer.get() == 0;
+
+                    if (!removed) {
+                        buffer.position(buffer.position() + Long.BYTES);
+                        skipString(buffer);
+
+                        final int errors = buffer.getInt();
+
+                        for (int i = 0; i < errors; i++) {
+                            buffer.position(buffer.position() + 3 * Integer.BYTES + 1);
+
+                            if (buffer.get() != 0) {
+                                skipString(buffer);
+                            }
+                        }
+                    }
+
+                    if (index.remove(path) != null || appended.remove(path) != null) {
+                        dead++;
+                    }
+
+                    if (removed) {
+                        dead++;
+                    } else {
+                        appended.put(path, record);
+                    }
+                } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+                    LOG.log(Level.INFO, "Dropping incomplete journal of {0}", project);
+                    channel.truncate(record);
+                    break;
+                }
+            }
+        }
+
+        journal = buffer;
+    }
+
+    private StoredResult read(String path) {
+        final Integer offset = appended.get(path);
+
+        if (offset != null) {
+            return readRecord(path, offset);
+        }
+
+        return index.containsKey(path) ? read(path, index.get(path)) : null;
+    }
+
+    private StoredResult read(String path, int offset) {
+        try {
+            final ByteBuffer buffer = mapped.duplicate();
+            buffer.position(offset);
+
+            final long hash = buffer.getLong();
+            final String fingerprint = pool[buffer.getInt()];
+            final int count = buffer.getInt();
+            final FileResult.Builder errors = new FileResult.Builder(path);
+
+            for (int i = 0; i < count; i++) {
+                final int line = buffer.getInt();
+                final int startCol = buffer.getInt();
+                final int endCol = buffer.getInt();
+                final int severity = buffer.get();
+                final int message = buffer.getInt();
+
+                errors.add(line, startCol, endCol, severity, message < 0 ? null : pool[message]);
+            }
+
+            return new StoredResult(hash, fingerprint, errors.build());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            LOG.log(Level.INFO, "Corrupt stored result of " + path, ex);
+            return null;
+        }
+    }
+
+    private StoredResult readRecord(String path, int offset) {
+        try {
+            final ByteBuffer buffer = journal.duplicate();
+            buffer.position(offset);
+            readString(buffer);
+            buffer.get();
+
+            final long hash = buffer.getLong();
+            final String fingerprint = readString(buffer);
+            final int count = buffer.getInt();
+            final FileResult.Builder errors = new FileResult.Builder(path);
+
+            for (int i = 0; i < count; i++) {
+                final int line = buffer.getInt();
+                final int startCol = buffer.getInt();
+                final int endCol = buffer.getInt();
+                final int severity = buffer.get();
+
+                errors.add(line, startCol, endCol, severity, buffer.get() != 0 ? readString(buffer) : null);
+            }
+
+            return new StoredResult(hash, fingerprint, errors.build());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            LOG.log(Level.INFO, "Corrupt stored result of " + path, ex);
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    private List<Path> files() {
+        return files(name + ".*" + SUFFIX);
+    }
+
+    private List<Path> files(String glob) {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        final List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            stream.forEach(files::add);
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Failed to list result stores", ex);
+        }
+
+        return files;
+    }
+
+    private int generationOf(Path file) {
+        final String fileName = file.getFileName().toString();
+
+        try {
+            return Integer.parseInt(fileName.substring(name.length() + 1, fileName.lastIndexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException ex) {
+            return 0;
+        }
+    }
+
+    private void deleteOldGenerations() {
+        for (Path file : files(name + ".*")) {
+            if (generationOf(file) < generation) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ex) {
+                    // Still mapped on Windows, retried on the next write
+                    LOG.log(Level.FINE, "Failed to delete " + file, ex);
+                }
+            }
+        }
+    }
+
+    private static final class StoredResult {
+
+        private final long hash;
+        private final String fingerprint;
+        private final FileResult result;
+
+        StoredResult(long hash, String fingerprint, FileResult result) {
+            this.hash = hash;
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+    }
+}
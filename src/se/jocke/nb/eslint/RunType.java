@@ -0,0 +1,55 @@
+package se.jocke.nb.eslint;
+
+import java.util.concurrent.TimeUnit;
+import se.jocke.nb.eslint.ui.options.ESLintOptions;
+
+/**
+ * What an ESLint run lints, each has its own timeout since a project scan may
+ * take minutes while an editor run should be done in a second.
+ *
+ * @author jocke
+ */
+enum RunType {
+
+    /**
+     * A single file for an editor, from disk or the unsaved text.
+     */
+    EDITOR,
+    /**
+     * A single file for the task list.
+     */
+    FILE,
+    /**
+     * A folder, a chunk of a project scan or files the scheduler collapsed
+     * into one run.
+     */
+    SCAN;
+
+    static RunType of(LintPriority priority, int files) {
+        if (files > 1) {
+            return SCAN;
+        }
+
+        return priority.isEditor() ? EDITOR : FILE;
+    }
+
+    /**
+     * @return the timeout in milliseconds, 0 for none
+     */
+    long getTimeout(ESLintOptions options) {
+        final int seconds;
+
+        switch (this) {
+            case EDITOR:
+                seconds = options.getEditorTimeout();
+                break;
+            case FILE:
+                seconds = options.getFileTimeout();
+                break;
+            default:
+                seconds = options.getScanTimeout();
+        }
+
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+}
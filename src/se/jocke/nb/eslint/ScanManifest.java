@@ -0,0 +1,191 @@
+package se.jocke.nb.eslint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.modules.Places;
+
+/**
+ * Size, modification time and content hash of every file of a project as
+ * seen by the last scan, persisted in the IDE cache directory. A rescan takes
+ * the hash of a file whose size and modification time did not change from
+ * here instead of reading it, and only files that are new or changed are
+ * linted again. The manifest belongs to one ESLint setup, a scan with another
+ * fingerprint does not use it.
+ *
+ * @author jocke
+ */
+final class ScanManifest {
+
+    private static final Logger LOG = Logger.getLogger(ScanManifest.class.getName());
+    private static final Map<String, ScanManifest> MANIFESTS = new ConcurrentHashMap<>();
+    private static final int MAGIC = 0x45534C4D; // ESLM
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final String project;
+
+    private boolean loaded;
+    private String fingerprint;
+    private Map<String, FileState> files = Collections.emptyMap();
+
+    ScanManifest(Path directory, String project) {
+        this.file = directory.resolve(Long.toHexString(ResultCache.hash(project)) + ".manifest"); // NOI18N
+        this.project = project;
+    }
+
+    /**
+     * @param projectDirectory absolute path of the project
+     * @return the manifest of the project
+     */
+    static ScanManifest get(String projectDirectory) {
+        return MANIFESTS.computeIfAbsent(projectDirectory, dir -> new ScanManifest(Places.getCacheSubdirectory("eslint/manifests").toPath(), dir)); // NOI18N
+    }
+
+    /**
+     * @return the fingerprint of the last scan or {@code null} if the project
+     * was never scanned
+     */
+    synchronized String getFingerprint() {
+        load();
+        return fingerprint;
+    }
+
+    /**
+     * @return the hash of the file if it has the size and modification time
+     * of the last scan, otherwise {@code null}
+     */
+    synchronized Long hash(String path, long size, long lastModified) {
+        load();
+
+        final FileState state = files.get(path);
+
+        return state != null && state.size == size && state.lastModified == lastModified ? state.hash : null;
+    }
+
+    /**
+     * @return the hash of the file, read from disk only if it changed since
+     * the last scan, or {@code null} if it can not be read
+     */
+    Long currentHash(String path) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            final Long hash = hash(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+
+            return hash != null ? hash : ResultCache.hash(Paths.get(path));
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Can not read " + path, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return the paths of all files of the last scan
+     */
+    synchronized Set<String> paths() {
+        load();
+        return new HashSet<>(files.keySet());
+    }
+
+    /**
+     * Replace the manifest with the files of a finished scan.
+     */
+    synchronized void save(String scanFingerprint, Map<String, FileState> scanned) {
+        loaded = true;
+        fingerprint = scanFingerprint;
+        files = new HashMap<>(scanned);
+
+        try {
+            Files.createDirectories(file.getParent());
+
+            final Path temp = file.resolveSibling(file.getFileName() + ".tmp"); // NOI18N
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(project);
+                out.writeUTF(fingerprint);
+                out.writeInt(files.size());
+
+                for (Map.Entry<String, FileState> entry : files.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeLong(entry.getValue().hash);
+                }
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+
+            LOG.log(Level.FINE, "Saved manifest of {0} files for {1}", new Object[]{files.size(), project});
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Failed to save manifest of " + project, ex);
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !project.equals(in.readUTF())) {
+                throw new IOException("Not a manifest of " + project);
+            }
+
+            final String storedFingerprint = in.readUTF();
+            final int count = in.readInt();
+            final Map<String, FileState> stored = new HashMap<>(count * 2);
+
+            for (int i = 0; i < count; i++) {
+                stored.put(in.readUTF(), new FileState(in.readLong(), in.readLong(), in.readLong()));
+            }
+
+            fingerprint = storedFingerprint;
+            files = stored;
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Discarding unreadable manifest of " + project, ex);
+        }
+    }
+
+    static final class FileState {
+
+        private final long size;
+        private final long lastModified;
+        private final long hash;
+
+        FileState(long size, long lastModified, long hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        long getHash() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package se.jocke.nb.eslint;
+
+import org.openide.modules.OnStop;
+
+/**
+ * Stops the ESLint workers, kills ESLint processes left running and writes
+ * pending results to the result stores when the IDE exits.
+ *
+ * @author jocke
+ */
+@OnStop
+public final class Shutdown implements Runnable {
+
+    @Override
+    public void run() {
+        ESLintDaemon.stopAll();
+        ProcessReaper.reap();
+        ResultStore.flushAll();
+    }
+}
@@ -0,0 +1,83 @@
+package se.jocke.nb.eslint.annotation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What changes between the annotations attached to a file and those of a new
+ * result: only annotations that disappeared are detached and only new ones
+ * are created, the rest stay attached.
+ *
+ * @author jocke
+ */
+final class AnnotationDiff<T> {
+
+    private final List<T> removed;
+    private final List<T> added;
+    private final int kept;
+
+    private AnnotationDiff(List<T> removed, List<T> added, int kept) {
+        this.removed = removed;
+        this.added = added;
+        this.kept = kept;
+    }
+
+    /**
+     * @param attached the annotations attached now
+     * @param wanted the annotations of the new result, duplicates are
+     * annotated once
+     */
+    static <T> AnnotationDiff<T> of(Collection<T> attached, Collection<T> wanted) {
+        final Set<T> wantedSet = new LinkedHashSet<>(wanted);
+        final Set<T> attachedSet = new HashSet<>(attached);
+        final List<T> removed = new ArrayList<>();
+        final List<T> added = new ArrayList<>();
+
+        for (T annotation : attached) {
+            if (!wantedSet.contains(annotation)) {
+                removed.add(annotation);
+            }
+        }
+
+        for (T annotation : wantedSet) {
+            if (!attachedSet.contains(annotation)) {
+                added.add(annotation);
+            }
+        }
+
+        return new AnnotationDiff<>(removed, added, wantedSet.size() - added.size());
+    }
+
+    /**
+     * @return the attached annotations to detach
+     */
+    List<T> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @return the wanted annotations to create
+     */
+    List<T> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return the number of annotations that stay attached
+     */
+    int getKept() {
+        return kept;
+    }
+
+    /**
+     * @return the number of attach and detach calls
+     */
+    int getOperations() {
+        return removed.size() + added.size();
+    }
+}
@@ -0,0 +1,152 @@
+package se.jocke.nb.eslint.annotation;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.openide.filesystems.FileObject;
+import org.openide.text.Annotation;
+
+/**
+ * The annotations attached per file. It is read without locking from the
+ * event thread, the output threads of ESLint and the file events. A file is
+ * registered when it is first linted in an editor. It is released when its
+ * editor closes, its data object is invalidated or it is deleted. Release
+ * detaches the annotations of the file and lets go of the file.
+ *
+ * @author jocke
+ */
+final class AnnotationRegistry {
+
+    private final Map<FileObject, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * @param created called once with a new registration, before any other
+     * thread can release it, e.g. to add the listeners that release it
+     * @return the registration of the file
+     */
+    Registration register(FileObject fileObject, Consumer<Registration> created) {
+        final Registration registration = registrations.get(fileObject);
+
+        if (registration != null) {
+            return registration;
+        }
+
+        final Registration added = new Registration();
+        final Registration existing = registrations.putIfAbsent(fileObject, added);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        created.accept(added);
+
+        return added;
+    }
+
+    /**
+     * @return the registration of the file or {@code null} if not registered
+     */
+    Registration get(FileObject fileObject) {
+        return registrations.get(fileObject);
+    }
+
+    /**
+     * Detach the annotations of the file and run its release hooks.
+     *
+     * @return true if the file was registered
+     */
+    boolean release(FileObject fileObject) {
+        final Registration registration = registrations.remove(fileObject);
+
+        if (registration == null) {
+            return false;
+        }
+
+        registration.release();
+
+        return true;
+    }
+
+    /**
+     * @return the number of registered files
+     */
+    int size() {
+        return registrations.size();
+    }
+
+    /**
+     * @return the number of annotations of all registered files
+     */
+    int annotationCount() {
+        return registrations.values().stream().mapToInt(registration -> registration.annotations.size()).sum();
+    }
+
+    /**
+     * The annotations of one file and what to undo when it is released.
+     */
+    static final class Registration {
+
+        private final Set<Annotation> annotations = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> releaseHooks = new CopyOnWriteArrayList<>();
+        private final PropertyChangeListener detached = this::detached;
+        private volatile boolean released;
+
+        /**
+         * @return the attached annotations, safe to iterate while changed
+         */
+        Set<Annotation> getAnnotations() {
+            return annotations;
+        }
+
+        /**
+         * Keep the annotations until they are detached, by the registration
+         * or by the editor.
+         */
+        void add(Collection<? extends Annotation> added) {
+            added.forEach(annotation -> annotation.addPropertyChangeListener(detached));
+            annotations.addAll(added);
+        }
+
+        /**
+         * @param hook run once when released, right away if already released
+         */
+        void onRelease(Runnable hook) {
+            releaseHooks.add(hook);
+
+            if (released && releaseHooks.remove(hook)) {
+                hook.run();
+            }
+        }
+
+        boolean isReleased() {
+            return released;
+        }
+
+        private void detached(PropertyChangeEvent evt) {
+            if (ESLintAnnotation.ATTACHED.equals(evt.getPropertyName()) && Boolean.FALSE.equals(evt.getNewValue())) {
+                final Annotation annotation = (Annotation) evt.getSource();
+                annotation.removePropertyChangeListener(detached);
+                annotations.remove(annotation);
+            }
+        }
+
+        private void release() {
+            released = true;
+
+            annotations.forEach(Annotation::detach);
+            annotations.clear();
+
+            for (Runnable hook : releaseHooks) {
+                if (releaseHooks.remove(hook)) {
+                    hook.run();
+                }
+            }
+        }
+    }
+}
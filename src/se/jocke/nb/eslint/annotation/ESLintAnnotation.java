@@ -30,7 +30,7 @@ public final class ESLintAnnotation extends Annotation implements PropertyChange
         }
     };
 
-    private boolean attached = false;
+    private volatile boolean attached = false;
 
     private ESLintAnnotation(String type, String reason, int line, int startCol, int endCol, Line.Part part) {
         super();
@@ -51,6 +51,24 @@ public final class ESLintAnnotation extends Annotation implements PropertyChange
         return annotation;
     }
 
+    /**
+     * An annotation that is never attached, to look up an attached one that
+     * is equal.
+     */
+    static ESLintAnnotation key(String type, String reason, int line, int startCol, int endCol) {
+        return new ESLintAnnotation(type, reason, line, startCol, endCol, null);
+    }
+
+    /**
+     * @return true if attached where it was created, a part moves with edits
+     * of the lines above it
+     */
+    boolean isInPlace() {
+        return attached && part != null
+                && part.getLine().getLineNumber() == line - 1
+                && part.getColumn() == startCol - 1;
+    }
+
     @Override
     public String getAnnotationType() {
         switch (type) {
@@ -87,6 +105,7 @@ public final class ESLintAnnotation extends Annotation implements PropertyChange
     public int hashCode() {
         int hash = 3;
 
+        hash = 97 * hash + Objects.hashCode(this.type);
         hash = 97 * hash + Objects.hashCode(this.reason);
         hash = 97 * hash + this.line;
         hash = 97 * hash + this.startCol;
@@ -117,7 +136,7 @@ public final class ESLintAnnotation extends Annotation implements PropertyChange
         if (this.endCol != other.endCol) {
             return false;
         }
-        return Objects.equals(this.reason, other.reason);
+        return Objects.equals(this.type, other.type) && Objects.equals(this.reason, other.reason);
     }
 
     @Override
@@ -1,14 +1,27 @@
 package se.jocke.nb.eslint.annotation;
 
-import java.beans.PropertyChangeEvent;
+import java.awt.EventQueue;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
 import org.openide.ErrorManager;
+import org.openide.awt.StatusDisplayer;
+import org.openide.cookies.EditorCookie;
 import org.openide.cookies.LineCookie;
 import org.openide.filesystems.FileChangeAdapter;
 import org.openide.filesystems.FileEvent;
@@ -19,9 +32,13 @@ import org.openide.text.Annotation;
 import org.openide.text.AnnotationProvider;
 import org.openide.text.Line;
 import org.openide.util.Lookup;
+import org.openide.util.NbBundle;
 import org.openide.util.lookup.ServiceProvider;
 import se.jocke.nb.eslint.ESLint;
+import se.jocke.nb.eslint.LintDebouncer;
+import se.jocke.nb.eslint.LintPriority;
 import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.FileResult;
 import se.jocke.nb.eslint.error.LintError;
 import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
 import se.jocke.nb.eslint.ui.options.OptionsUtil;
@@ -32,101 +49,388 @@ import se.jocke.nb.eslint.ui.options.OptionsUtil;
  */
 @ServiceProvider(service = AnnotationProvider.class)
 public class ESLintAnnotationProvider extends FileChangeAdapter implements AnnotationProvider {
-    private static final Map<FileObject, Set<Annotation>> MAPPING = new HashMap<>();
+    private static final AnnotationRegistry REGISTRY = new AnnotationRegistry();
+    private static final Map<FileObject, DocumentWatch> DOCUMENTS = new ConcurrentHashMap<>();
+    private static final Map<FileObject, Batch> PENDING = new ConcurrentHashMap<>();
     private static final Logger LOG = Logger.getLogger(ESLintAnnotationProvider.class.getName());
+    private static final LintDebouncer DEBOUNCER = new LintDebouncer();
 
     @Override
     public void annotate(Line.Set arg0, Lookup lookup) {
-        apply(lookup.lookup(FileObject.class));
+        final FileObject fileObject = lookup.lookup(FileObject.class);
+
+        if (fileObject != null) {
+            DEBOUNCER.run(fileObject, () -> apply(fileObject));
+        }
     }
 
-    public void apply(final FileObject fileObject) {
-        if (ESLintOptionsModel.getDefault().getESLintConfigOption().equals("manual")) {
+    public Future<Integer> apply(final FileObject fileObject) {
+        if (ESLintOptionsModel.getDefault().getSnapshot().isManual()) {
             if (OptionsUtil.isLintedFile(fileObject)) {
                 LOG.log(Level.INFO, "Start index file {0}", fileObject.getMIMEType());
 
-                if (MAPPING.containsKey(fileObject)) {
-                    detachAll(fileObject);
-
-                } else {
-                    MAPPING.put(fileObject, new HashSet<>());
-                    fileObject.addFileChangeListener(this);
-                }
-
                 try {
                     final DataObject dataObject = DataObject.find(fileObject);
+
+                    final AnnotationRegistry.Registration registration = REGISTRY.register(fileObject, created -> track(fileObject, dataObject, created));
+
                     final LineCookie lineCookie = dataObject.getLookup().lookup(LineCookie.class);
 
                     if (lineCookie == null) {
                         LOG.info("Line cookie null");
 
-                        return;
+                        return null;
                     }
 
-                    ESLint.getDefault().verify(fileObject, new ErrorReporter() {
+                    final EditorCookie editorCookie = dataObject.getLookup().lookup(EditorCookie.class);
+                    final String text = unsavedText(fileObject, dataObject, editorCookie);
+                    final ErrorReporter reporter = new ErrorReporter() {
+                        private final FileResult.Builder errors = new FileResult.Builder(fileObject.getPath());
+
                         @Override
-                        public void handle(LintError error) {
-                            Line currentLine = lineCookie.getLineSet().getCurrent(error.getLine() - 1);
-                            Line.Part currentPartLine = currentLine.createPart(error.getStartCol() - 1, error.getEndCol() - error.getStartCol());
-
-                            final ESLintAnnotation annotation = ESLintAnnotation.create(
-                                    ESLintAnnotation.Type.get(error.getSeverity()),
-                                    error.getMessage(),
-                                    error.getLine(),
-                                    error.getStartCol(),
-                                    error.getEndCol(),
-                                    currentPartLine);
-
-                            MAPPING.get(fileObject).add(annotation);
-
-                            annotation.addPropertyChangeListener(new PropertyChangeListener() {
-                                @Override
-                                public void propertyChange(PropertyChangeEvent evt) {
-                                    if (ESLintAnnotation.ATTACHED.equals(evt.getPropertyName())) {
-                                        annotation.removePropertyChangeListener(this);
-                                        if (MAPPING.containsKey(fileObject)) {
-                                            MAPPING.get(fileObject).remove(annotation);
-                                        }
-                                    }
-                                }
-                            });
+                        public synchronized void handle(LintError error) {
+                            errors.add(error);
                         }
 
                         @Override
-                        public void done() {
+                        public synchronized void done() {
                             LOG.log(Level.FINE, "Scannig done of {0}", fileObject.getName());
+                            reconcile(fileObject, registration, lineCookie, editorCookie != null ? editorCookie.getDocument() : null, errors.build());
+                        }
+
+                        @Override
+                        public void timedOut(long timeout) {
+                            StatusDisplayer.getDefault().setStatusText(NbBundle.getMessage(ESLint.class, "MSG_editorTimedOut",
+                                    fileObject.getNameExt(), TimeUnit.MILLISECONDS.toSeconds(timeout)));
                         }
-                    });
+                    };
+
+                    return text == null
+                            ? ESLint.getDefault().verify(fileObject, LintPriority.OPEN_EDITOR, reporter)
+                            : ESLint.getDefault().verify(fileObject, text, reporter);
                 } catch (DataObjectNotFoundException ex) {
                     ErrorManager.getDefault().notify(ErrorManager.WARNING, ex);
                 }
             }
         }
+
+        return null;
+    }
+
+    /**
+     * Bring the annotations of the file in line with a new result. Unchanged
+     * annotations stay attached, so a save only touches the problems that
+     * were fixed or introduced.
+     * <p>
+     * The lines of new annotations are looked up here, under one read lock of
+     * the document, and the annotations are changed in one batch on the event
+     * thread. A batch overtaken by a newer result of the same file is dropped,
+     * so is one of a file released since the lint started, even if it was
+     * opened again.
+     */
+    private void reconcile(final FileObject fileObject, final AnnotationRegistry.Registration registration, final LineCookie lineCookie,
+            final Document document, final FileResult result) {
+        if (isStale(fileObject, registration)) {
+            // Released while linted
+            return;
+        }
+
+        final Map<ESLintAnnotation, Integer> wanted = new LinkedHashMap<>();
+
+        for (int i = 0; i < result.size(); i++) {
+            wanted.putIfAbsent(ESLintAnnotation.key(ESLintAnnotation.Type.get(result.getSeverity(i)), result.getMessage(i),
+                    result.getLine(i), result.getStartCol(i), result.getEndCol(i)), i);
+        }
+
+        final Batch batch = new Batch(fileObject, lineCookie, registration, result, wanted);
+
+        if (document != null) {
+            document.render(batch::prepare);
+        } else {
+            batch.prepare();
+        }
+
+        PENDING.put(fileObject, batch);
+        EventQueue.invokeLater(batch);
+    }
+
+    /**
+     * @return true if the registration is released or replaced by a newer one
+     */
+    private static boolean isStale(FileObject fileObject, AnnotationRegistry.Registration registration) {
+        return registration.isReleased() || REGISTRY.get(fileObject) != registration;
+    }
+
+    /**
+     * Release the file when its editor closes or its data object is
+     * invalidated, so that nothing of a closed file is kept.
+     */
+    private void track(FileObject fileObject, DataObject dataObject, AnnotationRegistry.Registration registration) {
+        final PropertyChangeListener closed = evt -> {
+            if ((DataObject.PROP_VALID.equals(evt.getPropertyName()) && Boolean.FALSE.equals(evt.getNewValue()))
+                    || (EditorCookie.Observable.PROP_DOCUMENT.equals(evt.getPropertyName()) && evt.getNewValue() == null)) {
+                release(fileObject);
+            }
+        };
+
+        final EditorCookie.Observable editor = dataObject.getLookup().lookup(EditorCookie.Observable.class);
+
+        fileObject.addFileChangeListener(this);
+        dataObject.addPropertyChangeListener(closed);
+
+        if (editor != null) {
+            editor.addPropertyChangeListener(closed);
+        }
+
+        registration.onRelease(() -> {
+            fileObject.removeFileChangeListener(this);
+            dataObject.removePropertyChangeListener(closed);
+
+            if (editor != null) {
+                editor.removePropertyChangeListener(closed);
+            }
+
+            DEBOUNCER.cancel(fileObject);
+            PENDING.remove(fileObject);
+            unwatch(fileObject);
+        });
+    }
+
+    /**
+     * Detach the annotations of the file and stop following it.
+     */
+    public void release(FileObject fileObject) {
+        if (REGISTRY.release(fileObject)) {
+            LOG.log(Level.FINE, "Released {0}, {1} files with {2} annotations left",
+                    new Object[]{fileObject.getNameExt(), REGISTRY.size(), REGISTRY.annotationCount()});
+        }
     }
 
-    public void removeMapping(FileObject fileObject) {
-        MAPPING.remove(fileObject);
-        fileObject.removeFileChangeListener(this);
+    /**
+     * @return the number of files with annotations kept
+     */
+    public static int size() {
+        return REGISTRY.size();
+    }
+
+    /**
+     * Get the editor content of a modified file and start lint as you type by
+     * listening on its document.
+     *
+     * @return the unsaved text or {@code null} if the file on disk is up to date
+     */
+    private String unsavedText(FileObject fileObject, DataObject dataObject, EditorCookie editorCookie) {
+        if (editorCookie == null || !ESLintOptionsModel.getDefault().getSnapshot().isLintUnsaved()) {
+            return null;
+        }
+
+        final Document document = editorCookie.getDocument();
+
+        if (document == null) {
+            return null;
+        }
+
+        watch(fileObject, document);
+
+        if (!dataObject.isModified()) {
+            return null;
+        }
+
+        final String[] text = new String[1];
+
+        document.render(() -> {
+            try {
+                text[0] = document.getText(0, document.getLength());
+            } catch (BadLocationException ex) {
+                LOG.log(Level.FINE, "Failed to read document", ex);
+            }
+        });
+
+        return withLineSeparator(document, text[0]);
     }
 
-    public void detachAll(final FileObject primaryFile) {
-        HashSet<Annotation> copy = new HashSet<>(MAPPING.get(primaryFile));
+    /**
+     * The document separates lines by {@code \n} whatever the file uses, put
+     * back the separator read from the file so that rules like
+     * {@code linebreak-style} see the text as it will be saved.
+     */
+    static String withLineSeparator(Document document, String text) {
+        final Object separator = document.getProperty(DefaultEditorKit.EndOfLineStringProperty);
 
-        for (Annotation annotation : copy) {
-            annotation.detach();
+        if (text == null || !(separator instanceof String) || "\n".equals(separator)) {
+            return text;
+        }
+
+        return text.replace("\n", (String) separator);
+    }
+
+    private void watch(FileObject fileObject, Document document) {
+        DOCUMENTS.compute(fileObject, (file, watch) -> {
+            if (watch != null && watch.document == document) {
+                return watch;
+            }
+
+            if (watch != null) {
+                watch.document.removeDocumentListener(watch);
+            }
+
+            final DocumentWatch added = new DocumentWatch(fileObject, document);
+            document.addDocumentListener(added);
+
+            return added;
+        });
+    }
+
+    private void unwatch(FileObject fileObject) {
+        final DocumentWatch watch = DOCUMENTS.remove(fileObject);
+
+        if (watch != null) {
+            watch.document.removeDocumentListener(watch);
         }
     }
 
     @Override
     public void fileDeleted(FileEvent fe) {
-        if (MAPPING.containsKey(fe.getFile())) {
-            detachAll(fe.getFile());
-            removeMapping(fe.getFile());
-        }
+        release(fe.getFile());
     }
 
     @Override
     public void fileChanged(FileEvent fe) {
-        apply(fe.getFile());
+        final FileObject fileObject = fe.getFile();
+        DEBOUNCER.schedule(fileObject, () -> apply(fileObject));
+    }
+
+    /**
+     * The annotation changes of one result of a file.
+     */
+    private static final class Batch implements Runnable {
+
+        private final FileObject fileObject;
+        private final LineCookie lineCookie;
+        private final AnnotationRegistry.Registration registration;
+        private final Set<Annotation> annotations;
+        private final FileResult result;
+        // The index in the result of every wanted annotation
+        private final Map<ESLintAnnotation, Integer> wanted;
+        private final Map<ESLintAnnotation, Line.Part> parts = new HashMap<>();
+
+        Batch(FileObject fileObject, LineCookie lineCookie, AnnotationRegistry.Registration registration, FileResult result, Map<ESLintAnnotation, Integer> wanted) {
+            this.fileObject = fileObject;
+            this.lineCookie = lineCookie;
+            this.registration = registration;
+            this.annotations = registration.getAnnotations();
+            this.result = result;
+            this.wanted = wanted;
+        }
+
+        /**
+         * Create the parts of the annotations not attached in place yet, off
+         * the event thread.
+         */
+        void prepare() {
+            final Set<Annotation> attached = new HashSet<>(annotations);
+
+            attached.removeIf(annotation -> !(annotation instanceof ESLintAnnotation) || !((ESLintAnnotation) annotation).isInPlace());
+
+            for (Map.Entry<ESLintAnnotation, Integer> entry : wanted.entrySet()) {
+                if (!attached.contains(entry.getKey())) {
+                    parts.put(entry.getKey(), createPart(entry.getValue()));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!PENDING.remove(fileObject, this) || isStale(fileObject, registration)) {
+                // Overtaken by a newer result or the file is released
+                return;
+            }
+
+            final Set<ESLintAnnotation> attached = new HashSet<>();
+
+            for (Annotation annotation : annotations) {
+                // One that moved with an edit is created again where the result says
+                if (!(annotation instanceof ESLintAnnotation) || !((ESLintAnnotation) annotation).isInPlace() || !attached.add((ESLintAnnotation) annotation)) {
+                    annotation.detach();
+                }
+            }
+
+            final AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(attached, wanted.keySet());
+            final List<Annotation> added = new ArrayList<>(diff.getAdded().size());
+
+            diff.getRemoved().forEach(Annotation::detach);
+
+            for (ESLintAnnotation key : diff.getAdded()) {
+                // Not prepared if the annotation moved after prepare
+                final Line.Part part = parts.containsKey(key) ? parts.get(key) : createPart(wanted.get(key));
+
+                if (part == null) {
+                    continue;
+                }
+
+                final int index = wanted.get(key);
+                final ESLintAnnotation annotation = ESLintAnnotation.create(
+                        ESLintAnnotation.Type.get(result.getSeverity(index)),
+                        result.getMessage(index),
+                        result.getLine(index),
+                        result.getStartCol(index),
+                        result.getEndCol(index),
+                        part);
+
+                added.add(annotation);
+            }
+
+            registration.add(added);
+
+            if (isStale(fileObject, registration)) {
+                // Released while attaching
+                added.forEach(Annotation::detach);
+            }
+
+            LOG.log(Level.FINE, "Annotations of {0}: {1} kept, {2} detached, {3} created",
+                    new Object[]{fileObject.getNameExt(), diff.getKept(), diff.getRemoved().size(), added.size()});
+        }
+
+        /**
+         * @return the part or {@code null} if the line is gone
+         */
+        private Line.Part createPart(int index) {
+            try {
+                return lineCookie.getLineSet().getCurrent(result.getLine(index) - 1)
+                        .createPart(result.getStartCol(index) - 1, result.getEndCol(index) - result.getStartCol(index));
+            } catch (IndexOutOfBoundsException ex) {
+                LOG.log(Level.FINE, "Line {0} is gone from {1}", new Object[]{result.getLine(index), fileObject.getNameExt()});
+                return null;
+            }
+        }
+    }
+
+    private final class DocumentWatch implements DocumentListener {
+
+        private final FileObject fileObject;
+        private final Document document;
+
+        DocumentWatch(FileObject fileObject, Document document) {
+            this.fileObject = fileObject;
+            this.document = document;
+        }
+
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            changed();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            changed();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+
+        private void changed() {
+            DEBOUNCER.schedule(fileObject, () -> apply(fileObject));
+        }
     }
 }
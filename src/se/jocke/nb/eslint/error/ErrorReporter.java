@@ -7,6 +7,25 @@ package se.jocke.nb.eslint.error;
 public interface ErrorReporter {
     
     void handle(LintError error);
-    
+
+    /**
+     * Called after the errors of one file have been handled, also for files
+     * without any errors. Results of a folder arrive file by file.
+     *
+     * @param file absolute path of the linted file
+     */
+    default void fileDone(String file) {
+    }
+
     void done();
+
+    /**
+     * Called instead of {@link #done()} when ESLint was killed for running
+     * longer than its timeout. Files not reported done yet have no results.
+     *
+     * @param timeout the timeout in milliseconds
+     */
+    default void timedOut(long timeout) {
+        done();
+    }
 }
@@ -0,0 +1,205 @@
+package se.jocke.nb.eslint.error;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The errors of one linted file in primitive arrays. The path and the
+ * messages are shared through the {@link StringPool}, so a result takes a few
+ * bytes per error instead of a {@link LintError} with its own strings. Errors
+ * are only created when asked for.
+ *
+ * @author jocke
+ */
+public final class FileResult {
+
+    private static final int[] NONE = new int[0];
+    private static final byte[] NO_SEVERITIES = new byte[0];
+    private static final String[] NO_MESSAGES = new String[0];
+
+    private final String path;
+    private final int size;
+    // line, start column and end column of every error
+    private final int[] positions;
+    private final byte[] severities;
+    // null for an error without a message
+    private final String[] messages;
+
+    private FileResult(String path, int size, int[] positions, byte[] severities, String[] messages) {
+        this.path = path;
+        this.size = size;
+        this.positions = positions;
+        this.severities = severities;
+        this.messages = messages;
+    }
+
+    /**
+     * @return a result of the errors, all of the given file
+     */
+    public static FileResult of(String path, List<LintError> errors) {
+        final Builder builder = new Builder(path, errors.size());
+        errors.forEach(builder::add);
+
+        return builder.build();
+    }
+
+    /**
+     * @return a result without errors
+     */
+    public static FileResult empty(String path) {
+        return new FileResult(StringPool.paths().intern(path), 0, NONE, NO_SEVERITIES, NO_MESSAGES);
+    }
+
+    /**
+     * @return absolute path of the linted file
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getLine(int index) {
+        return positions[check(index) * 3];
+    }
+
+    public int getStartCol(int index) {
+        return positions[check(index) * 3 + 1];
+    }
+
+    public int getEndCol(int index) {
+        return positions[check(index) * 3 + 2];
+    }
+
+    public int getSeverity(int index) {
+        return severities[check(index)];
+    }
+
+    public String getMessage(int index) {
+        return messages[check(index)];
+    }
+
+    /**
+     * @return the error at the index, sharing the pooled strings
+     */
+    public LintError get(int index) {
+        return new LintError(getPath(), getLine(index), getStartCol(index), getEndCol(index), getSeverity(index), getMessage(index));
+    }
+
+    /**
+     * @return the errors, created as they are read
+     */
+    public List<LintError> getErrors() {
+        return new AbstractList<LintError>() {
+            @Override
+            public LintError get(int index) {
+                return FileResult.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return true if any error has the error severity
+     */
+    public boolean hasErrors() {
+        for (int i = 0; i < size; i++) {
+            if (severities[i] == 2) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Hand every error to the reporter, without telling it the file is done.
+     */
+    public void report(ErrorReporter reporter) {
+        for (int i = 0; i < size; i++) {
+            reporter.handle(get(i));
+        }
+    }
+
+    private int check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return index;
+    }
+
+    /**
+     * Collects the errors of one file as they are reported.
+     */
+    public static final class Builder {
+
+        private final String path;
+        private int size;
+        private int[] positions;
+        private byte[] severities;
+        private String[] messages;
+
+        public Builder(String path) {
+            this(path, 8);
+        }
+
+        Builder(String path, int capacity) {
+            this.path = StringPool.paths().intern(path);
+            this.positions = capacity > 0 ? new int[capacity * 3] : NONE;
+            this.severities = capacity > 0 ? new byte[capacity] : NO_SEVERITIES;
+            this.messages = capacity > 0 ? new String[capacity] : NO_MESSAGES;
+        }
+
+        public Builder add(LintError error) {
+            return add(error.getLine(), error.getStartCol(), error.getEndCol(), error.getSeverity(), error.getMessage());
+        }
+
+        public Builder add(int line, int startCol, int endCol, int severity, String message) {
+            if (size == severities.length) {
+                final int capacity = Math.max(8, size * 2);
+                positions = Arrays.copyOf(positions, capacity * 3);
+                severities = Arrays.copyOf(severities, capacity);
+                messages = Arrays.copyOf(messages, capacity);
+            }
+
+            positions[size * 3] = line;
+            positions[size * 3 + 1] = startCol;
+            positions[size * 3 + 2] = endCol;
+            severities[size] = (byte) severity;
+            messages[size] = StringPool.messages().intern(message);
+            size++;
+
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the result, trimmed to the errors added
+         */
+        public FileResult build() {
+            if (size == 0) {
+                return new FileResult(path, 0, NONE, NO_SEVERITIES, NO_MESSAGES);
+            }
+
+            return new FileResult(path, size,
+                    size * 3 == positions.length ? positions : Arrays.copyOf(positions, size * 3),
+                    size == severities.length ? severities : Arrays.copyOf(severities, size),
+                    size == messages.length ? messages : Arrays.copyOf(messages, size));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package se.jocke.nb.eslint.error;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one instance of equal strings, so that results repeating a path or
+ * message refer to the same string instead of a copy each. The pool holds its
+ * strings weakly, a string no longer part of any result, like a message about
+ * a name typed halfway or the path of a deleted file, leaves the pool.
+ * <p>
+ * Strings are interned by every thread that builds a result, the pool takes
+ * no lock.
+ *
+ * @author jocke
+ */
+public final class StringPool {
+
+    private static final StringPool PATHS = new StringPool();
+    private static final StringPool MESSAGES = new StringPool();
+
+    private final ConcurrentHashMap<Entry, Entry> strings = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+
+    StringPool() {
+    }
+
+    /**
+     * @return the pool of linted file paths
+     */
+    public static StringPool paths() {
+        return PATHS;
+    }
+
+    /**
+     * @return the pool of messages reported by the rules
+     */
+    public static StringPool messages() {
+        return MESSAGES;
+    }
+
+    /**
+     * @return the pooled instance of the string or {@code null} for
+     * {@code null}
+     */
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+
+        expunge();
+
+        final Entry found = strings.get(new Entry(string, null));
+        final String pooled = found != null ? found.get() : null;
+
+        if (pooled != null) {
+            return pooled;
+        }
+
+        final Entry entry = new Entry(string, collected);
+
+        while (true) {
+            final Entry existing = strings.putIfAbsent(entry, entry);
+
+            if (existing == null) {
+                return string;
+            }
+
+            final String other = existing.get();
+
+            if (other != null) {
+                return other;
+            }
+
+            // Collected meanwhile, its entry only equals itself
+            strings.remove(existing, existing);
+        }
+    }
+
+    /**
+     * @return the number of strings in the pool still in use
+     */
+    public int size() {
+        expunge();
+        return strings.size();
+    }
+
+    private void expunge() {
+        Reference<? extends String> reference;
+
+        while ((reference = collected.poll()) != null) {
+            strings.remove(reference, reference);
+        }
+    }
+
+    /**
+     * A string held weakly that equals an entry of an equal string. An entry
+     * whose string is collected equals only itself.
+     */
+    private static final class Entry extends WeakReference<String> {
+
+        private final int hash;
+
+        Entry(String string, ReferenceQueue<String> queue) {
+            super(string, queue);
+            this.hash = string.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+
+            final String string = get();
+
+            return string != null && string.equals(((Entry) obj).get());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Long lived ESLint worker used by nb-eslint.
+ *
+ * Usage: node eslint-daemon.js <eslint package dir>
+ *
+ * Reads one JSON request per line from stdin:
+ *   {"id": 1, "files": ["/abs/file.js"], "config": "/abs/.eslintrc.js"}
+ * optionally with the ESLint cache file to use for the request:
+ *   {"id": 1, "files": ["."], "cache": "/abs/cache/file"}
+ * or, to lint unsaved content of a file:
+ *   {"id": 2, "files": ["/abs/file.js"], "text": "var a = 1"}
+ * and answers with one line per linted file:
+ *   {"filePath": "/abs/file.js", "messages": [...]}
+ * followed by a line closing the request:
+ *   {"id": 1, "done": true} or {"id": 1, "error": "..."}
+ */
+'use strict';
+
+const readline = require('readline');
+
+// stdout is reserved for the protocol, keep plugins from writing to it
+console.log = console.info = console.warn;
+
+const fs = require('fs');
+const path = require('path');
+const eslint = require(process.argv[2]);
+const version = require(path.join(process.argv[2], 'package.json')).version.split('.').map(Number);
+const engines = new Map();
+
+// The content strategy was added in ESLint 7.21
+const contentStrategy = version[0] > 7 || (version[0] === 7 && version[1] >= 21);
+
+function getEngine(config, cache) {
+    const key = (config || '') + '\0' + (cache || '');
+
+    // The plugin deletes the cache file when the setup changed, start over with a fresh engine
+    if (cache && engines.has(key) && !fs.existsSync(cache)) {
+        engines.delete(key);
+    }
+
+    if (!engines.has(key)) {
+        const options = {};
+
+        if (cache) {
+            options.cache = true;
+            options.cacheLocation = cache;
+
+            if (contentStrategy) {
+                options.cacheStrategy = 'content';
+            }
+        }
+
+        if (eslint.ESLint) {
+            if (config) {
+                options.overrideConfigFile = config;
+            }
+            engines.set(key, new eslint.ESLint(options));
+        } else {
+            if (config) {
+                options.configFile = config;
+            }
+            engines.set(key, new eslint.CLIEngine(options));
+        }
+    }
+
+    return engines.get(key);
+}
+
+async function lint(request) {
+    const engine = getEngine(request.config, request.cache);
+
+    if (typeof request.text === 'string') {
+        const filePath = request.files[0];
+
+        if (engine.lintText) {
+            return engine.lintText(request.text, {filePath, warnIgnored: true});
+        }
+
+        return engine.executeOnText(request.text, filePath, true).results;
+    }
+
+    if (engine.lintFiles) {
+        return engine.lintFiles(request.files);
+    }
+
+    return engine.executeOnFiles(request.files).results;
+}
+
+function write(object) {
+    process.stdout.write(JSON.stringify(object) + '\n');
+}
+
+function toResult(result) {
+    return {
+        filePath: result.filePath,
+        messages: result.messages.map(message => ({
+            ruleId: message.ruleId,
+            fatal: message.fatal,
+            severity: message.severity,
+            message: message.message,
+            line: message.line,
+            column: message.column,
+            endColumn: message.endColumn
+        }))
+    };
+}
+
+let queue = Promise.resolve();
+
+readline.createInterface({input: process.stdin}).on('line', line => {
+    if (!line.trim()) {
+        return;
+    }
+
+    let request;
+
+    try {
+        request = JSON.parse(line);
+    } catch (err) {
+        // Without an id there is nobody to answer, a thrown error would end the worker
+        process.stderr.write(`Ignoring malformed request: ${err.message}\n`);
+        return;
+    }
+
+    queue = queue
+            .then(() => lint(request))
+            .then(results => {
+                results.forEach(result => write(toResult(result)));
+                write({id: request.id, done: true});
+            })
+            .catch(err => write({id: request.id, error: String(err && err.message || err)}));
+}).on('close', () => process.exit(0));
@@ -1,66 +1,555 @@
 package se.jocke.nb.eslint.task;
 
 import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openide.filesystems.FileAttributeEvent;
+import org.openide.filesystems.FileChangeListener;
+import org.openide.filesystems.FileEvent;
 import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileRenameEvent;
 import org.openide.filesystems.FileUtil;
 
 /**
+ * Ignore index of a root folder built from {@code .eslintignore} files with
+ * gitignore semantics: the last matching pattern wins, {@code !pattern}
+ * includes again, a trailing slash matches directories only and a pattern
+ * without a slash matches at any depth. Ignore files in sub folders apply to
+ * their folder and take precedence over the ones above. Everything below an
+ * ignored directory is ignored, so whole subtrees like {@code node_modules}
+ * can be skipped with {@link #isIgnoredDirectory(FileObject)}.
+ * <p>
+ * One index is kept per root for as long as it is used, e.g. by the task
+ * scanner of an open project. The patterns of every ignore file are compiled
+ * once and the answers for directories are cached, both are dropped when an
+ * ignore file below the root changes. Only the folders whose ignore file was
+ * read are listened to, never ignored subtrees like {@code node_modules}.
  *
  * @author jocke
  */
 public class ESLintIgnore {
 
+    private static final Logger LOG = Logger.getLogger(ESLintIgnore.class.getName());
+    private static final Map<FileObject, Reference<ESLintIgnore>> INDEXES = new WeakHashMap<>();
+    private static final String IGNORE_FILE = ".eslintignore"; // NOI18N
+    private static final List<String> DEFAULT_PATTERNS = Collections.singletonList("node_modules/"); // NOI18N
+
+    private static final int NONE = 0;
+    private static final int IGNORE = 1;
+    private static final int INCLUDE = 2;
+
     private final FileObject root;
+    private final FileChangeListener listener = new IgnoreFileListener();
+    private final Set<String> listened = ConcurrentHashMap.newKeySet();
 
-    private final List<PathMatcher> pathMatchers;
+    private volatile State state;
 
-    private ESLintIgnore(FileObject root, List<PathMatcher> pathMatchers) {
+    private ESLintIgnore(FileObject root) {
         this.root = root;
-        this.pathMatchers = new ArrayList<>(pathMatchers);
-        this.pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:node_modules/**/*"));
+        this.state = new State();
     }
 
     public static ESLintIgnore get(FileObject fileObject) {
-        if (fileObject.isFolder() && fileObject.getFileObject(".eslintignore") != null) {
+        if (!fileObject.isFolder()) {
+            throw new IllegalArgumentException("Not a folder " + fileObject);
+        }
+
+        synchronized (INDEXES) {
+            final Reference<ESLintIgnore> reference = INDEXES.get(fileObject);
+            ESLintIgnore ignore = reference != null ? reference.get() : null;
+
+            if (ignore == null) {
+                ignore = new ESLintIgnore(fileObject);
+                INDEXES.put(fileObject, new WeakReference<>(ignore));
+            }
+
+            return ignore;
+        }
+    }
+
+    public boolean isIgnored(FileObject fileObject) {
+        final String path = FileUtil.getRelativePath(root, fileObject);
+
+        return path != null && !path.isEmpty() && isIgnored(path, fileObject.isFolder());
+    }
+
+    /**
+     * @return true if the directory and everything below it is ignored
+     */
+    public boolean isIgnoredDirectory(FileObject directory) {
+        return directory.isFolder() && isIgnored(directory);
+    }
+
+    /**
+     * @param path path relative to the root, separated by {@code /}
+     * @param directory true if the path is a directory
+     */
+    public boolean isIgnored(String path, boolean directory) {
+        if (directory) {
+            return directory(state, path).ignored;
+        }
+
+        final State current = state;
+        final int slash = path.lastIndexOf('/');
+        final Directory parent = slash > 0 ? directory(current, path.substring(0, slash)) : current.root;
+
+        return parent.ignored || parent.match(path, path.substring(slash + 1), false) == IGNORE;
+    }
+
+    private Directory directory(State current, String path) {
+        Directory directory = current.directories.get(path);
+
+        if (directory == null) {
+            final int slash = path.lastIndexOf('/');
+            final Directory parent = slash > 0 ? directory(current, path.substring(0, slash)) : current.root;
+            final boolean ignored = parent.ignored || parent.match(path, path.substring(slash + 1), true) == IGNORE;
+
+            // Nothing below an ignored directory is looked at, no need to read its ignore file
+            directory = ignored ? Directory.IGNORED : parent.child(path, load(path));
+            current.directories.put(path, directory);
+        }
+
+        return directory;
+    }
+
+    private Rules load(String base) {
+        listen(base);
+
+        final List<String> patterns = new ArrayList<>();
+
+        if (base.isEmpty()) {
+            patterns.addAll(DEFAULT_PATTERNS);
+        }
+
+        final FileObject ignoreFile = root.getFileObject(base.isEmpty() ? IGNORE_FILE : base + '/' + IGNORE_FILE);
+
+        if (ignoreFile != null && ignoreFile.isData()) {
             try {
-                FileObject ignore = fileObject.getFileObject(".eslintignore");
-                List<PathMatcher> pathMatchers = new ArrayList<>();
-                final List<String> lines = ignore.asLines();
-                for (String glob : lines) {
-                    glob = glob.endsWith("/") ? glob + "**/*" : glob;
-                    pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+                patterns.addAll(ignoreFile.asLines());
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Failed to read ignore file " + ignoreFile, ex);
+            }
+        }
+
+        return Rules.compile(patterns);
+    }
+
+    /**
+     * Listen to the folder for its ignore file being created, changed or
+     * deleted. The listener is weak, it goes with the index.
+     */
+    private void listen(String base) {
+        final FileObject folder = base.isEmpty() ? root : root.getFileObject(base);
+
+        if (folder != null && folder.isFolder() && listened.add(base)) {
+            folder.addFileChangeListener(FileUtil.weakFileChangeListener(listener, folder));
+        }
+    }
+
+    private void invalidate() {
+        LOG.log(Level.FINE, "Ignore files changed in {0}", root);
+        state = new State();
+    }
+
+    private final class State {
+
+        private final Directory root = Directory.ROOT.child("", load(""));
+        private final Map<String, Directory> directories = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A directory that is ignored, or the ignore files that apply below it
+     * with the deepest first.
+     */
+    private static final class Directory {
+
+        private static final Directory ROOT = new Directory(false, new Rules[0], new int[0]);
+        private static final Directory IGNORED = new Directory(true, new Rules[0], new int[0]);
+
+        private final boolean ignored;
+        private final Rules[] rules;
+        private final int[] bases;
+
+        private Directory(boolean ignored, Rules[] rules, int[] bases) {
+            this.ignored = ignored;
+            this.rules = rules;
+            this.bases = bases;
+        }
+
+        Directory child(String path, Rules own) {
+            if (own.isEmpty()) {
+                return this;
+            }
+
+            final Rules[] childRules = new Rules[rules.length + 1];
+            final int[] childBases = new int[bases.length + 1];
+
+            childRules[0] = own;
+            childBases[0] = path.isEmpty() ? 0 : path.length() + 1;
+            System.arraycopy(rules, 0, childRules, 1, rules.length);
+            System.arraycopy(bases, 0, childBases, 1, bases.length);
+
+            return new Directory(false, childRules, childBases);
+        }
+
+        /**
+         * Ask the ignore files from the deepest folder up, the first one with
+         * a matching pattern decides.
+         */
+        int match(String path, String name, boolean directory) {
+            for (int i = 0; i < rules.length; i++) {
+                final int decision = rules[i].match(bases[i] == 0 ? path : path.substring(bases[i]), name, directory);
+
+                if (decision != NONE) {
+                    return decision;
                 }
-                return new ESLintIgnore(fileObject, pathMatchers);
-            } catch (IOException iOException) {
-                Logger.getLogger(ESLintIgnore.class.getName()).log(Level.WARNING, "Failed to read ignore file");
-                return new ESLintIgnore(fileObject, Collections.EMPTY_LIST);
             }
-        } else if (fileObject.isFolder()) {
-            return new ESLintIgnore(fileObject, Collections.EMPTY_LIST);
 
-        } else {
-            throw new IllegalArgumentException("Not a folder " + fileObject);
+            return NONE;
         }
     }
 
-    public boolean isIgnored(FileObject fileObject) {
-        Path filePath = FileUtil.toFile(fileObject).toPath();
-        Path dirPath = FileUtil.toFile(root).toPath();
-        final Path relPath = dirPath.relativize(filePath);
-        for (PathMatcher pathMatcher : pathMatchers) {
-            if (pathMatcher.matches(relPath)) {
+    /**
+     * The patterns of one ignore file. Patterns without a slash are matched
+     * against the name only, plain names through a map and the others through
+     * one expression, patterns with a slash through one expression against
+     * the path relative to the ignore file. The pattern with the highest index
+     * that matches decides.
+     */
+    static final class Rules {
+
+        private static final Rules EMPTY = new Rules(new Builder());
+
+        private final boolean[] negations;
+        private final Map<String, Integer> fileNames;
+        private final Map<String, Integer> directoryNames;
+        private final Matchers fileNamePatterns;
+        private final Matchers directoryNamePatterns;
+        private final Matchers filePathPatterns;
+        private final Matchers directoryPathPatterns;
+
+        private Rules(Builder builder) {
+            this.negations = toArray(builder.negations);
+            this.fileNames = builder.fileNames;
+            this.directoryNames = builder.directoryNames;
+            this.fileNamePatterns = builder.fileNamePatterns.build();
+            this.directoryNamePatterns = builder.directoryNamePatterns.build();
+            this.filePathPatterns = builder.filePathPatterns.build();
+            this.directoryPathPatterns = builder.directoryPathPatterns.build();
+        }
+
+        static Rules compile(List<String> lines) {
+            final Builder builder = new Builder();
+
+            for (String line : lines) {
+                String pattern = line;
+
+                // Trailing spaces are ignored unless escaped
+                int length = pattern.length();
+                while (length > 0 && pattern.charAt(length - 1) == ' ' && (length < 2 || pattern.charAt(length - 2) != '\\')) {
+                    length--;
+                }
+                pattern = pattern.substring(0, length);
+
+                if (pattern.isEmpty() || pattern.startsWith("#")) {
+                    continue;
+                }
+
+                final boolean negated = pattern.startsWith("!");
+
+                if (negated || pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                    pattern = pattern.substring(1);
+                }
+
+                final boolean directoryOnly = pattern.endsWith("/");
+
+                while (pattern.endsWith("/")) {
+                    pattern = pattern.substring(0, pattern.length() - 1);
+                }
+
+                final boolean anchored = pattern.indexOf('/') >= 0;
+
+                while (pattern.startsWith("/")) {
+                    pattern = pattern.substring(1);
+                }
+
+                if (!pattern.isEmpty()) {
+                    builder.add(pattern, negated, directoryOnly, anchored);
+                }
+            }
+
+            return builder.negations.isEmpty() ? EMPTY : new Rules(builder);
+        }
+
+        boolean isEmpty() {
+            return negations.length == 0;
+        }
+
+        /**
+         * @param path path relative to the folder of the ignore file
+         * @param name the last segment of the path
+         */
+        int match(String path, String name, boolean directory) {
+            final Integer named = (directory ? directoryNames : fileNames).get(name);
+            int rule = named != null ? named : -1;
+
+            rule = Math.max(rule, (directory ? directoryNamePatterns : fileNamePatterns).match(name));
+            rule = Math.max(rule, (directory ? directoryPathPatterns : filePathPatterns).match(path));
+
+            if (rule < 0) {
+                return NONE;
+            }
+
+            return negations[rule] ? INCLUDE : IGNORE;
+        }
+
+        private static boolean[] toArray(List<Boolean> values) {
+            final boolean[] array = new boolean[values.size()];
+
+            for (int i = 0; i < array.length; i++) {
+                array[i] = values.get(i);
+            }
+
+            return array;
+        }
+
+        private static final class Builder {
+
+            private final List<Boolean> negations = new ArrayList<>();
+            private final Map<String, Integer> fileNames = new HashMap<>();
+            private final Map<String, Integer> directoryNames = new HashMap<>();
+            private final Matchers.Builder fileNamePatterns = new Matchers.Builder();
+            private final Matchers.Builder directoryNamePatterns = new Matchers.Builder();
+            private final Matchers.Builder filePathPatterns = new Matchers.Builder();
+            private final Matchers.Builder directoryPathPatterns = new Matchers.Builder();
+
+            void add(String pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+                final int rule = negations.size();
+                negations.add(negated);
+
+                if (!anchored && isLiteral(pattern)) {
+                    final String name = pattern.replace("\\", "");
+                    directoryNames.put(name, rule);
+
+                    if (!directoryOnly) {
+                        fileNames.put(name, rule);
+                    }
+                } else {
+                    final String regex = toRegex(pattern);
+                    (anchored ? directoryPathPatterns : directoryNamePatterns).add(regex, rule);
+
+                    if (!directoryOnly) {
+                        (anchored ? filePathPatterns : fileNamePatterns).add(regex, rule);
+                    }
+                }
+            }
+
+            private static boolean isLiteral(String pattern) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    final char c = pattern.charAt(i);
+
+                    if (c == '*' || c == '?' || c == '[') {
+                        return false;
+                    }
+                }
+
                 return true;
             }
         }
 
-        return false;
+        /**
+         * Translate a glob to a regular expression without capturing groups.
+         */
+        static String toRegex(String glob) {
+            final StringBuilder regex = new StringBuilder();
+
+            for (int i = 0; i < glob.length(); i++) {
+                final char c = glob.charAt(i);
+
+                switch (c) {
+                    case '*':
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                            i++;
+
+                            if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                                i++;
+                                regex.append("(?:.*/)?");
+                            } else {
+                                regex.append(".*");
+                            }
+                        } else {
+                            regex.append("[^/]*");
+                        }
+                        break;
+                    case '?':
+                        regex.append("[^/]");
+                        break;
+                    case '[':
+                        final int close = glob.indexOf(']', i + 2);
+
+                        if (close < 0) {
+                            regex.append("\\[");
+                        } else {
+                            String range = glob.substring(i + 1, close).replace("\\", "\\\\").replace("[", "\\[");
+
+                            if (range.startsWith("!")) {
+                                range = '^' + range.substring(1);
+                            }
+
+                            regex.append('[').append(range).append(']');
+                            i = close;
+                        }
+                        break;
+                    case '\\':
+                        if (i + 1 < glob.length()) {
+                            i++;
+                            quote(regex, glob.charAt(i));
+                        }
+                        break;
+                    default:
+                        quote(regex, c);
+                }
+            }
+
+            return regex.toString();
+        }
+
+        /**
+         * Patterns compiled into one expression with a group per pattern,
+         * the last pattern first so the group that matches is the last
+         * matching pattern.
+         */
+        private static final class Matchers {
+
+            private static final Matchers NONE = new Matchers(null, new int[0]);
+
+            private final Pattern pattern;
+            private final int[] rules;
+
+            private Matchers(Pattern pattern, int[] rules) {
+                this.pattern = pattern;
+                this.rules = rules;
+            }
+
+            /**
+             * @return the index of the last matching pattern or -1
+             */
+            int match(String path) {
+                if (pattern == null) {
+                    return -1;
+                }
+
+                final Matcher matcher = pattern.matcher(path);
+
+                if (!matcher.matches()) {
+                    return -1;
+                }
+
+                for (int group = 1; group <= rules.length; group++) {
+                    if (matcher.start(group) >= 0) {
+                        return rules[group - 1];
+                    }
+                }
+
+                return -1;
+            }
+
+            private static final class Builder {
+
+                private final List<String> patterns = new ArrayList<>();
+                private final List<Integer> rules = new ArrayList<>();
+
+                void add(String pattern, int rule) {
+                    patterns.add(0, pattern);
+                    rules.add(0, rule);
+                }
+
+                Matchers build() {
+                    if (rules.isEmpty()) {
+                        return NONE;
+                    }
+
+                    final StringBuilder regex = new StringBuilder();
+                    final int[] array = new int[rules.size()];
+
+                    for (int i = 0; i < array.length; i++) {
+                        regex.append(i == 0 ? "(" : "|(").append(patterns.get(i)).append(')');
+                        array[i] = rules.get(i);
+                    }
+
+                    return new Matchers(Pattern.compile(regex.toString()), array);
+                }
+            }
+        }
+
+        private static void quote(StringBuilder regex, char c) {
+            if (".$^{}()|+\\[]".indexOf(c) >= 0) {
+                regex.append('\\');
+            }
+
+            regex.append(c);
+        }
+    }
+
+    private final class IgnoreFileListener implements FileChangeListener {
+
+        private void changed(FileEvent fe) {
+            if (IGNORE_FILE.equals(fe.getFile().getNameExt())) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void fileFolderCreated(FileEvent fe) {
+        }
+
+        @Override
+        public void fileDataCreated(FileEvent fe) {
+            changed(fe);
+        }
+
+        @Override
+        public void fileChanged(FileEvent fe) {
+            changed(fe);
+        }
+
+        @Override
+        public void fileDeleted(FileEvent fe) {
+            final String path = FileUtil.getRelativePath(root, fe.getFile());
+
+            // A folder created again under the same path needs a new listener
+            if (path != null && listened.remove(path)) {
+                invalidate();
+            } else {
+                changed(fe);
+            }
+        }
+
+        @Override
+        public void fileRenamed(FileRenameEvent fe) {
+            final String oldName = fe.getExt().isEmpty() ? fe.getName() : fe.getName() + '.' + fe.getExt();
+
+            if (IGNORE_FILE.equals(oldName)) {
+                invalidate();
+            } else {
+                changed(fe);
+            }
+        }
+
+        @Override
+        public void fileAttributeChanged(FileAttributeEvent fe) {
+        }
     }
 }
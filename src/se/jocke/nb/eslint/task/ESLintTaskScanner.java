@@ -9,11 +9,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
+import org.netbeans.api.progress.ProgressHandle;
 import org.netbeans.api.project.FileOwnerQuery;
 import org.netbeans.api.project.Project;
 import org.netbeans.spi.tasklist.PushTaskScanner;
@@ -24,9 +29,13 @@ import org.netbeans.spi.tasklist.TaskScanningScope;
 import org.openide.filesystems.FileChangeAdapter;
 import org.openide.filesystems.FileEvent;
 import org.openide.filesystems.FileUtil;
-import org.openide.util.Exceptions;
+import org.openide.util.Cancellable;
+import org.openide.util.RequestProcessor;
 import se.jocke.nb.eslint.ESLint;
+import se.jocke.nb.eslint.LintDebouncer;
+import se.jocke.nb.eslint.LintPriority;
 import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.FileResult;
 import se.jocke.nb.eslint.error.LintError;
 import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
 import static se.jocke.nb.eslint.ui.options.OptionsUtil.isLintedFile;
@@ -34,6 +43,7 @@ import static se.jocke.nb.eslint.ui.options.OptionsUtil.isLintedFile;
 public class ESLintTaskScanner extends PushTaskScanner {
     private static final Logger LOG = Logger.getLogger(ESLintTaskScanner.class.getName());
     private static final Map<Integer, String> ERROR_TYPE_TO_GROUP_MAP = new ConcurrentHashMap<>();
+    private static final RequestProcessor SCANS = new RequestProcessor(ESLintTaskScanner.class.getName(), Integer.MAX_VALUE, true);
 
     static {
         ERROR_TYPE_TO_GROUP_MAP.put(1, "nb-tasklist-warning");
@@ -44,6 +54,10 @@ public class ESLintTaskScanner extends PushTaskScanner {
 
     private final List<Stoppable> listeners = new ArrayList<>();
 
+    private final LintDebouncer debouncer = new LintDebouncer();
+
+    private ScopeScan scan;
+
     public ESLintTaskScanner(String name, String desc) {
         super(name, desc, null);
     }
@@ -58,13 +72,18 @@ public class ESLintTaskScanner extends PushTaskScanner {
 
     @Override
     public void setScope(final TaskScanningScope scope, final Callback callback) {
-        if (ESLintOptionsModel.getDefault().getESLintConfigOption().equals("manual")) {
+        if (ESLintOptionsModel.getDefault().getSnapshot().isManual()) {
             listeners.forEach(stoppable -> {
                 stoppable.stop();
             });
 
             listeners.clear();
 
+            if (scan != null) {
+                scan.cancel();
+                scan = null;
+            }
+
             if (this.callback != null) {
                 this.callback.clearAllTasks();
             }
@@ -80,14 +99,14 @@ public class ESLintTaskScanner extends PushTaskScanner {
 
             FileObject file = scope.getLookup().lookup(FileObject.class);
 
-            callback.started();
-
-            Future<Integer> future = null;
+            final List<Function<ScopeScan, Future<Integer>>> starts = new ArrayList<>();
 
             if (!projects.isEmpty()) {
                 for (Project project : projects) {
-                    JSFileRecursiveListener listener = new JSFileRecursiveListener(project.getProjectDirectory());
-                    future = ESLint.getDefault().verify(project.getProjectDirectory(), new SimpleErrorReporter());
+                    final FileObject root = project.getProjectDirectory();
+                    JSFileRecursiveListener listener = new JSFileRecursiveListener(root);
+                    // Results of unchanged files, also from the last session, are reported first
+                    starts.add(current -> ESLint.getDefault().scan(root, current.reporter(root)));
                     listeners.add(listener);
                     listener.start();
                 }
@@ -97,7 +116,7 @@ public class ESLintTaskScanner extends PushTaskScanner {
                     ESLintIgnore ignore = ESLintIgnore.get(project.getProjectDirectory());
                     if (!ignore.isIgnored(file)) {
                         JSFileListener listener = new JSFileListener(file);
-                        future = ESLint.getDefault().verify(file, new SimpleErrorReporter());
+                        starts.add(current -> ESLint.getDefault().verify(file, LintPriority.EXPLICIT, current.reporter(file)));
                         listeners.add(listener);
                         listener.start();
                     }
@@ -106,44 +125,179 @@ public class ESLintTaskScanner extends PushTaskScanner {
                 }
             }
 
-            if (future != null) {
-                try {
-                    future.get();
-                } catch (InterruptedException | ExecutionException ex) {
-                    Exceptions.printStackTrace(ex);
-                }
-            }
-
-            callback.finished();
+            scan = new ScopeScan(callback, starts);
+            callback.started();
+            SCANS.post(scan);
         }
     }
 
     private class SimpleErrorReporter implements ErrorReporter {
 
-        private final Map<FileObject, List<Task>> tasks;
+        private final Map<String, FileResult.Builder> results;
 
-        public SimpleErrorReporter() {
-            this.tasks = new HashMap<>();
+        private final FileObject target;
+
+        /**
+         * @param target the file or folder linted, shows a timeout
+         */
+        public SimpleErrorReporter(FileObject target) {
+            this.results = new HashMap<>();
+            this.target = target;
         }
 
         @Override
         public void handle(LintError error) {
-            FileObject fileObject = FileUtil.toFileObject(new File(error.getFile()));
+            results.computeIfAbsent(error.getFile(), FileResult.Builder::new).add(error);
+        }
 
-            if (!tasks.containsKey(fileObject)) {
-                tasks.put(fileObject, new ArrayList<>());
-            }
+        @Override
+        public void fileDone(String file) {
+            FileResult.Builder result = results.remove(file);
+            FileObject fileObject = FileUtil.toFileObject(new File(file));
 
-            tasks.get(fileObject).add(Task.create(fileObject, ERROR_TYPE_TO_GROUP_MAP.get(error.getSeverity()), error.getMessage(), error.getLine()));
+            if (fileObject != null) {
+                callback.setTasks(fileObject, result != null ? tasks(fileObject, result.build()) : Collections.<Task>emptyList());
+            }
         }
 
         @Override
         public void done() {
-            tasks.entrySet().forEach(entry -> {
-                callback.setTasks(entry.getKey(), entry.getValue());
-            });
+            new ArrayList<>(results.keySet()).forEach(this::fileDone);
+        }
+
+        @Override
+        public void timedOut(long timeout) {
+            done();
+            LOG.log(Level.WARNING, "ESLint timed out on {0}", target.getPath());
+            callback.setTasks(target, Collections.singletonList(Task.create(target, ERROR_TYPE_TO_GROUP_MAP.get(2),
+                    NbBundle.getMessage(ESLint.class, "MSG_timedOut", TimeUnit.MILLISECONDS.toSeconds(timeout)), 1)));
+        }
+
+    }
+
+    /**
+     * @return the tasks of a file, created when handed to the task list
+     */
+    private static List<Task> tasks(FileObject fileObject, FileResult result) {
+        final List<Task> tasks = new ArrayList<>(result.size());
+
+        for (int i = 0; i < result.size(); i++) {
+            tasks.add(Task.create(fileObject, ERROR_TYPE_TO_GROUP_MAP.get(result.getSeverity(i)), result.getMessage(i), result.getLine(i)));
+        }
+
+        return tasks;
+    }
+
+    /**
+     * The runs of one scope, started and waited for off the thread setting
+     * the scope, so that switching scopes never blocks. Files are listed and
+     * hashed while starting a project scan, which takes a while on a big
+     * workspace. The callback is told finished once every run completed, or
+     * was cancelled by the next scope.
+     */
+    private final class ScopeScan implements Runnable, Cancellable {
+
+        private final Callback callback;
+        private final List<Function<ScopeScan, Future<Integer>>> starts;
+        private final List<Future<Integer>> runs = new ArrayList<>();
+        private final AtomicInteger files = new AtomicInteger();
+        private final ProgressHandle progress;
+        private boolean cancelled;
+
+        ScopeScan(Callback callback, List<Function<ScopeScan, Future<Integer>>> starts) {
+            this.callback = callback;
+            this.starts = starts;
+            this.progress = ProgressHandle.createHandle(msg("MSG_scanning"), this);
+        }
+
+        @Override
+        public void run() {
+            progress.start(starts.size());
+
+            try {
+                for (Function<ScopeScan, Future<Integer>> start : starts) {
+                    if (isCancelled()) {
+                        break;
+                    }
+
+                    add(start.apply(this));
+                }
+
+                int done = 0;
+
+                for (Future<Integer> run : runs()) {
+                    await(run);
+                    progress.progress(++done);
+                }
+            } finally {
+                progress.finish();
+                callback.finished();
+            }
+        }
+
+        private synchronized void add(Future<Integer> run) {
+            if (run == null) {
+                return;
+            }
+
+            if (cancelled) {
+                run.cancel(true);
+            } else {
+                runs.add(run);
+            }
         }
 
+        private synchronized List<Future<Integer>> runs() {
+            return new ArrayList<>(runs);
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void await(Future<Integer> run) {
+            try {
+                run.get();
+            } catch (CancellationException ex) {
+                LOG.log(Level.FINE, "ESLint run of the scope cancelled");
+            } catch (ExecutionException ex) {
+                LOG.log(Level.INFO, "ESLint run of the scope failed", ex);
+            } catch (InterruptedException ex) {
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Cancel the runs of the scope, from the next scope or the progress
+         * bar.
+         */
+        @Override
+        public boolean cancel() {
+            final List<Future<Integer>> cancelled;
+
+            synchronized (this) {
+                this.cancelled = true;
+                cancelled = new ArrayList<>(runs);
+            }
+
+            cancelled.forEach(run -> run.cancel(true));
+
+            return true;
+        }
+
+        /**
+         * @return a reporter of the run of the target counting linted files
+         */
+        ErrorReporter reporter(FileObject target) {
+            return new SimpleErrorReporter(target) {
+                @Override
+                public void fileDone(String file) {
+                    super.fileDone(file);
+                    progress.progress(NbBundle.getMessage(ESLint.class, "MSG_lintedFiles", files.incrementAndGet()));
+                }
+            };
+        }
     }
 
     private interface Stoppable {
@@ -165,6 +319,7 @@ public class ESLintTaskScanner extends PushTaskScanner {
         @Override
         public void fileDeleted(FileEvent fe) {
             if (isLintedFile(fe.getFile()) && !ignore.isIgnored(fe.getFile())) {
+                debouncer.cancel(fe.getFile());
                 callback.setTasks(fe.getFile(), Collections.EMPTY_LIST);
             }
         }
@@ -173,7 +328,7 @@ public class ESLintTaskScanner extends PushTaskScanner {
         public void fileChanged(FileEvent fe) {
             if (isLintedFile(fe.getFile()) && !ignore.isIgnored(fe.getFile())) {
                 callback.setTasks(fe.getFile(), Collections.EMPTY_LIST);
-                ESLint.getDefault().verify(fe.getFile(), new SimpleErrorReporter());
+                debouncer.schedule(fe.getFile(), () -> ESLint.getDefault().verify(fe.getFile(), LintPriority.BACKGROUND, new SimpleErrorReporter(fe.getFile())));
             }
         }
 
@@ -197,13 +352,14 @@ public class ESLintTaskScanner extends PushTaskScanner {
 
         @Override
         public void fileDeleted(FileEvent fe) {
+            debouncer.cancel(fe.getFile());
             callback.setTasks(fe.getFile(), Collections.EMPTY_LIST);
         }
 
         @Override
         public void fileChanged(FileEvent fe) {
             callback.setTasks(fe.getFile(), Collections.EMPTY_LIST);
-            ESLint.getDefault().verify(fe.getFile(), new SimpleErrorReporter());
+            debouncer.schedule(fe.getFile(), () -> ESLint.getDefault().verify(fe.getFile(), LintPriority.EXPLICIT, new SimpleErrorReporter(fe.getFile())));
         }
 
         public void start() {
@@ -0,0 +1,207 @@
+package se.jocke.nb.eslint.ui.options;
+
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable snapshot of the options for the lint hot path, with the file
+ * extensions pattern compiled once. Get the current one from
+ * {@link ESLintOptionsModel#getSnapshot()}, it is replaced whenever an option
+ * changes.
+ *
+ * @author jocke
+ */
+public final class ESLintOptions {
+
+    private static final Logger LOG = Logger.getLogger(ESLintOptions.class.getName());
+
+    static final String DEFAULT_ESLINT_CONFIG = "manual";
+    static final String DEFAULT_CUSTOM_CONFIG_PATH = Paths.get(System.getProperty("user.home"), ".eslintrc.js").toString();
+    static final String DEFAULT_FILE_EXTENSIONS_REGEX = ".*?\\.[j,t]sx?$|.*?\\.vue$";
+    static final boolean DEFAULT_USE_DAEMON = false;
+    static final int DEFAULT_LINT_DELAY = 300;
+    static final boolean DEFAULT_LINT_UNSAVED = true;
+    static final boolean DEFAULT_SHARDED_SCAN = true;
+    // 0 for one per processor
+    static final int DEFAULT_SCAN_SHARDS = 0;
+    static final int DEFAULT_MAX_PROCESSES = 0;
+    static final boolean DEFAULT_NODE_COMPILE_CACHE = true;
+    // 0 for the default of node
+    static final int DEFAULT_NODE_MAX_OLD_SPACE_SIZE = 0;
+    static final int DEFAULT_EDITOR_TIMEOUT = 30;
+    static final int DEFAULT_FILE_TIMEOUT = 120;
+    static final int DEFAULT_SCAN_TIMEOUT = 900;
+
+    private final String esLintConfig;
+    private final String esLintPath;
+    private final boolean useCustomConfig;
+    private final String customConfigPath;
+    private final Pattern fileExtensions;
+    private final boolean useDaemon;
+    private final int lintDelay;
+    private final boolean lintUnsaved;
+    private final boolean shardedScan;
+    private final int scanShards;
+    private final int maxProcesses;
+    private final boolean nodeCompileCache;
+    private final int nodeMaxOldSpaceSize;
+    private final String nodeOptions;
+    private final int editorTimeout;
+    private final int fileTimeout;
+    private final int scanTimeout;
+
+    private ESLintOptions(Preferences preferences) {
+        this.esLintConfig = preferences.get("esLintConfig", DEFAULT_ESLINT_CONFIG);
+        this.esLintPath = preferences.get("esLintPath", "").trim();
+        this.useCustomConfig = preferences.getBoolean("useCustomConfig", false);
+        this.customConfigPath = preferences.get("customConfigPath", DEFAULT_CUSTOM_CONFIG_PATH);
+        this.fileExtensions = compile(preferences.get("fileExtensionsRegEx", DEFAULT_FILE_EXTENSIONS_REGEX));
+        this.useDaemon = preferences.getBoolean("useDaemon", DEFAULT_USE_DAEMON);
+        this.lintDelay = preferences.getInt("lintDelay", DEFAULT_LINT_DELAY);
+        this.lintUnsaved = preferences.getBoolean("lintUnsaved", DEFAULT_LINT_UNSAVED);
+        this.shardedScan = preferences.getBoolean("shardedScan", DEFAULT_SHARDED_SCAN);
+        final int shards = preferences.getInt("scanShards", DEFAULT_SCAN_SHARDS);
+        this.scanShards = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        final int processes = preferences.getInt("maxProcesses", DEFAULT_MAX_PROCESSES);
+        this.maxProcesses = processes > 0 ? processes : Runtime.getRuntime().availableProcessors();
+        this.nodeCompileCache = preferences.getBoolean("nodeCompileCache", DEFAULT_NODE_COMPILE_CACHE);
+        this.nodeMaxOldSpaceSize = Math.max(0, preferences.getInt("nodeMaxOldSpaceSize", DEFAULT_NODE_MAX_OLD_SPACE_SIZE));
+        this.nodeOptions = preferences.get("nodeOptions", "").trim();
+        this.editorTimeout = Math.max(0, preferences.getInt("editorTimeout", DEFAULT_EDITOR_TIMEOUT));
+        this.fileTimeout = Math.max(0, preferences.getInt("fileTimeout", DEFAULT_FILE_TIMEOUT));
+        this.scanTimeout = Math.max(0, preferences.getInt("scanTimeout", DEFAULT_SCAN_TIMEOUT));
+    }
+
+    static ESLintOptions read(Preferences preferences) {
+        return new ESLintOptions(preferences);
+    }
+
+    private static Pattern compile(String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException ex) {
+            LOG.log(Level.WARNING, "Invalid file extensions pattern {0}, using the default", regex);
+            return Pattern.compile(DEFAULT_FILE_EXTENSIONS_REGEX);
+        }
+    }
+
+    /**
+     * @return true if ESLint is enabled
+     */
+    public boolean isManual() {
+        return "manual".equals(esLintConfig);
+    }
+
+    /**
+     * @return the esLintPath, trimmed
+     */
+    public String getESLintPath() {
+        return esLintPath;
+    }
+
+    /**
+     * @return the custom config to pass with --config or an empty string to
+     * use the config of the project
+     */
+    public String getConfig() {
+        return useCustomConfig ? customConfigPath : "";
+    }
+
+    /**
+     * @param name file name with extension
+     * @return true if the name matches the fileExtensionsRegEx
+     */
+    public boolean isLintedFile(String name) {
+        return fileExtensions.matcher(name).matches();
+    }
+
+    /**
+     * @return the useDaemon
+     */
+    public boolean isUseDaemon() {
+        return useDaemon;
+    }
+
+    /**
+     * @return the lintDelay
+     */
+    public int getLintDelay() {
+        return lintDelay;
+    }
+
+    /**
+     * @return the lintUnsaved
+     */
+    public boolean isLintUnsaved() {
+        return lintUnsaved;
+    }
+
+    /**
+     * @return the shardedScan
+     */
+    public boolean isShardedScan() {
+        return shardedScan;
+    }
+
+    /**
+     * @return the number of processes per project scan, the number of
+     * processors unless set
+     */
+    public int getScanShards() {
+        return scanShards;
+    }
+
+    /**
+     * @return the number of ESLint processes allowed to run at the same time,
+     * the number of processors unless set
+     */
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    /**
+     * @return the nodeCompileCache
+     */
+    public boolean isNodeCompileCache() {
+        return nodeCompileCache;
+    }
+
+    /**
+     * @return the heap limit of node in MB, 0 for the default of node
+     */
+    public int getNodeMaxOldSpaceSize() {
+        return nodeMaxOldSpaceSize;
+    }
+
+    /**
+     * @return the extra NODE_OPTIONS, trimmed
+     */
+    public String getNodeOptions() {
+        return nodeOptions;
+    }
+
+    /**
+     * @return the seconds an editor run may take, 0 for no limit
+     */
+    public int getEditorTimeout() {
+        return editorTimeout;
+    }
+
+    /**
+     * @return the seconds a single file run may take, 0 for no limit
+     */
+    public int getFileTimeout() {
+        return fileTimeout;
+    }
+
+    /**
+     * @return the seconds a folder or scan run may take, 0 for no limit
+     */
+    public int getScanTimeout() {
+        return scanTimeout;
+    }
+}
@@ -1,6 +1,5 @@
 package se.jocke.nb.eslint.ui.options;
 
-import java.nio.file.Paths;
 import java.util.prefs.Preferences;
 import org.openide.util.NbPreferences;
 import se.jocke.nb.eslint.ESLint;
@@ -11,24 +10,45 @@ import se.jocke.nb.eslint.ESLint;
  */
 public class ESLintOptionsModel {
 
-    private static ESLintOptionsModel instance;
+    private static final ESLintOptionsModel INSTANCE = new ESLintOptionsModel();
+
+    private volatile ESLintOptions snapshot;
+
+    private ESLintOptionsModel() {
+        getPreferences().addPreferenceChangeListener(evt -> refresh());
+        refresh();
+    }
 
     public static ESLintOptionsModel getDefault() {
-        if (instance == null) {
-            instance = new ESLintOptionsModel();
-        }
-        return instance;
+        return INSTANCE;
     }
 
     private static Preferences getPreferences() {
         return NbPreferences.forModule(ESLint.class);
     }
 
+    /**
+     * The options for linting, read without touching the preferences.
+     *
+     * @return the current snapshot
+     */
+    public ESLintOptions getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Also called by the setters, preference change events are delivered
+     * asynchronously.
+     */
+    private void refresh() {
+        snapshot = ESLintOptions.read(getPreferences());
+    }
+
     /**
      * @return the esLintConfig
      */
     public String getESLintConfigOption() {
-        return getPreferences().get("esLintConfig", "manual");
+        return getPreferences().get("esLintConfig", ESLintOptions.DEFAULT_ESLINT_CONFIG);
     }
 
     /**
@@ -36,6 +56,7 @@ public class ESLintOptionsModel {
      */
     public void setESLintConfigOption(String esLintConfig) {
         getPreferences().put("esLintConfig", esLintConfig);
+        refresh();
     }
 
     /**
@@ -50,6 +71,7 @@ public class ESLintOptionsModel {
      */
     public void setESLintPathOption(String esLintPath) {
         getPreferences().put("esLintPath", esLintPath);
+        refresh();
     }
 
     /**
@@ -64,13 +86,14 @@ public class ESLintOptionsModel {
      */
     public void setUseCustomConfigOption(boolean useCustomConfig) {
         getPreferences().putBoolean("useCustomConfig", useCustomConfig);
+        refresh();
     }
 
     /**
      * @return the customConfigPath
      */
     public String getCustomConfigPathOption() {
-        return getPreferences().get("customConfigPath", Paths.get(System.getProperty("user.home"), ".eslintrc.js").toString());
+        return getPreferences().get("customConfigPath", ESLintOptions.DEFAULT_CUSTOM_CONFIG_PATH);
     }
 
     /**
@@ -78,13 +101,14 @@ public class ESLintOptionsModel {
      */
     public void setCustomConfigPathOption(String customConfigPath) {
         getPreferences().put("customConfigPath", customConfigPath);
+        refresh();
     }
 
     /**
      * @return the fileExtensionsRegEx
      */
     public String getFileExtensionsRegExOption() {
-        return getPreferences().get("fileExtensionsRegEx", ".*?\\.[j,t]sx?$|.*?\\.vue$");
+        return getPreferences().get("fileExtensionsRegEx", ESLintOptions.DEFAULT_FILE_EXTENSIONS_REGEX);
     }
 
     /**
@@ -92,5 +116,186 @@ public class ESLintOptionsModel {
      */
     public void setFileExtensionsRegExOption(String fileExtensionsRegEx) {
         getPreferences().put("fileExtensionsRegEx", fileExtensionsRegEx);
+        refresh();
+    }
+
+    /**
+     * @return the useDaemon
+     */
+    public boolean getUseDaemonOption() {
+        return getPreferences().getBoolean("useDaemon", ESLintOptions.DEFAULT_USE_DAEMON);
+    }
+
+    /**
+     * @param useDaemon the useDaemon to set
+     */
+    public void setUseDaemonOption(boolean useDaemon) {
+        getPreferences().putBoolean("useDaemon", useDaemon);
+        refresh();
+    }
+
+    /**
+     * @return the lintDelay, quiet period in milliseconds before a changed file is linted
+     */
+    public int getLintDelayOption() {
+        return getPreferences().getInt("lintDelay", ESLintOptions.DEFAULT_LINT_DELAY);
+    }
+
+    /**
+     * @param lintDelay the lintDelay to set
+     */
+    public void setLintDelayOption(int lintDelay) {
+        getPreferences().putInt("lintDelay", lintDelay);
+        refresh();
+    }
+
+    /**
+     * @return the lintUnsaved, lint the editor content instead of the file on disk while it is modified
+     */
+    public boolean getLintUnsavedOption() {
+        return getPreferences().getBoolean("lintUnsaved", ESLintOptions.DEFAULT_LINT_UNSAVED);
+    }
+
+    /**
+     * @param lintUnsaved the lintUnsaved to set
+     */
+    public void setLintUnsavedOption(boolean lintUnsaved) {
+        getPreferences().putBoolean("lintUnsaved", lintUnsaved);
+        refresh();
+    }
+
+    /**
+     * @return the shardedScan, lint a project as a list of files split over several processes
+     */
+    public boolean getShardedScanOption() {
+        return getPreferences().getBoolean("shardedScan", ESLintOptions.DEFAULT_SHARDED_SCAN);
+    }
+
+    /**
+     * @param shardedScan the shardedScan to set
+     */
+    public void setShardedScanOption(boolean shardedScan) {
+        getPreferences().putBoolean("shardedScan", shardedScan);
+        refresh();
+    }
+
+    /**
+     * @return the scanShards, number of processes per project scan, 0 for one per processor
+     */
+    public int getScanShardsOption() {
+        return getPreferences().getInt("scanShards", ESLintOptions.DEFAULT_SCAN_SHARDS);
+    }
+
+    /**
+     * @param scanShards the scanShards to set
+     */
+    public void setScanShardsOption(int scanShards) {
+        getPreferences().putInt("scanShards", scanShards);
+        refresh();
+    }
+
+    /**
+     * @return the maxProcesses, number of ESLint processes running at the same time, 0 for one per processor
+     */
+    public int getMaxProcessesOption() {
+        return getPreferences().getInt("maxProcesses", ESLintOptions.DEFAULT_MAX_PROCESSES);
+    }
+
+    /**
+     * @param maxProcesses the maxProcesses to set
+     */
+    public void setMaxProcessesOption(int maxProcesses) {
+        getPreferences().putInt("maxProcesses", maxProcesses);
+        refresh();
+    }
+
+    /**
+     * @return the nodeCompileCache, let node keep compiled ESLint code in the IDE cache directory
+     */
+    public boolean getNodeCompileCacheOption() {
+        return getPreferences().getBoolean("nodeCompileCache", ESLintOptions.DEFAULT_NODE_COMPILE_CACHE);
+    }
+
+    /**
+     * @param nodeCompileCache the nodeCompileCache to set
+     */
+    public void setNodeCompileCacheOption(boolean nodeCompileCache) {
+        getPreferences().putBoolean("nodeCompileCache", nodeCompileCache);
+        refresh();
+    }
+
+    /**
+     * @return the nodeMaxOldSpaceSize, heap limit of node in MB, 0 for the default of node
+     */
+    public int getNodeMaxOldSpaceSizeOption() {
+        return getPreferences().getInt("nodeMaxOldSpaceSize", ESLintOptions.DEFAULT_NODE_MAX_OLD_SPACE_SIZE);
+    }
+
+    /**
+     * @param nodeMaxOldSpaceSize the nodeMaxOldSpaceSize to set
+     */
+    public void setNodeMaxOldSpaceSizeOption(int nodeMaxOldSpaceSize) {
+        getPreferences().putInt("nodeMaxOldSpaceSize", nodeMaxOldSpaceSize);
+        refresh();
+    }
+
+    /**
+     * @return the nodeOptions, extra NODE_OPTIONS for the ESLint processes
+     */
+    public String getNodeOptionsOption() {
+        return getPreferences().get("nodeOptions", "");
+    }
+
+    /**
+     * @param nodeOptions the nodeOptions to set
+     */
+    public void setNodeOptionsOption(String nodeOptions) {
+        getPreferences().put("nodeOptions", nodeOptions);
+        refresh();
+    }
+
+    /**
+     * @return the editorTimeout, seconds before an editor run is killed, 0 for no limit
+     */
+    public int getEditorTimeoutOption() {
+        return getPreferences().getInt("editorTimeout", ESLintOptions.DEFAULT_EDITOR_TIMEOUT);
+    }
+
+    /**
+     * @param editorTimeout the editorTimeout to set
+     */
+    public void setEditorTimeoutOption(int editorTimeout) {
+        getPreferences().putInt("editorTimeout", editorTimeout);
+        refresh();
+    }
+
+    /**
+     * @return the fileTimeout, seconds before a single file run of the task list is killed, 0 for no limit
+     */
+    public int getFileTimeoutOption() {
+        return getPreferences().getInt("fileTimeout", ESLintOptions.DEFAULT_FILE_TIMEOUT);
+    }
+
+    /**
+     * @param fileTimeout the fileTimeout to set
+     */
+    public void setFileTimeoutOption(int fileTimeout) {
+        getPreferences().putInt("fileTimeout", fileTimeout);
+        refresh();
+    }
+
+    /**
+     * @return the scanTimeout, seconds before a folder or project scan run is killed, 0 for no limit
+     */
+    public int getScanTimeoutOption() {
+        return getPreferences().getInt("scanTimeout", ESLintOptions.DEFAULT_SCAN_TIMEOUT);
+    }
+
+    /**
+     * @param scanTimeout the scanTimeout to set
+     */
+    public void setScanTimeoutOption(int scanTimeout) {
+        getPreferences().putInt("scanTimeout", scanTimeout);
+        refresh();
     }
 }
@@ -8,13 +8,19 @@ import java.util.List;
 import javax.swing.JComponent;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.JSpinner;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import org.netbeans.spi.options.OptionsPanelController;
 import org.openide.awt.StatusDisplayer;
 import org.openide.util.HelpCtx;
 import org.openide.util.Lookup;
+import org.openide.util.RequestProcessor;
 import se.jocke.nb.eslint.ESLint;
+import se.jocke.nb.eslint.NodeRuntime;
 
 @OptionsPanelController.SubRegistration(
         location = "Html5",
@@ -24,8 +30,10 @@ import se.jocke.nb.eslint.ESLint;
         keywordsCategory = "Html5/ESLint"
 )
 @org.openide.util.NbBundle.Messages({"AdvancedOption_DisplayName_ESLint=ESLint", "AdvancedOption_Keywords_ESLint=eslint javascript lint"})
-public final class ESLintOptionsPanelController extends OptionsPanelController implements ActionListener, DocumentListener {
+public final class ESLintOptionsPanelController extends OptionsPanelController implements ActionListener, DocumentListener, ChangeListener {
     
+    private static final RequestProcessor MEASURE = new RequestProcessor(ESLintOptionsPanelController.class.getName());
+
     private ESLintPanel panel;
     private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
     private boolean changed;
@@ -112,6 +120,11 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
             } else {
                 panel.txtEslintPath.setText(ngCliPaths.get(0));
             }
+        } else if (e.getSource() == panel.chbShardedScan) {
+            panel.lblScanShards.setEnabled(panel.chbShardedScan.isSelected());
+            panel.spnScanShards.setEnabled(panel.chbShardedScan.isSelected());
+        } else if (e.getSource() == panel.btnMeasureStartup) {
+            measureStartup();
         } else if (e.getSource() == panel.btnBrowseCustomConfig) {
             int returnVal = panel.fileChooser.showOpenDialog(panel);
             if (returnVal == JFileChooser.APPROVE_OPTION) {
@@ -122,6 +135,41 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
         changed();
     }
     
+    @org.openide.util.NbBundle.Messages({
+        "ESLintOptionsPanel.startup.measuring=Measuring...",
+        "ESLintOptionsPanel.startup.failed=ESLint could not be started.",
+        "# {0} - milliseconds without the compile cache",
+        "# {1} - milliseconds with the compile cache",
+        "ESLintOptionsPanel.startup.measured=Startup: {0} ms without, {1} ms with the compile cache",
+        "# {0} - milliseconds",
+        "# {1} - node version",
+        "ESLintOptionsPanel.startup.unsupported=Startup: {0} ms, node {1} has no compile cache (22.1 or later)"
+    })
+    private void measureStartup() {
+        final String eslintPath = panel.txtEslintPath.getText().trim();
+
+        panel.btnMeasureStartup.setEnabled(false);
+        panel.lblStartupTime.setText(Bundle.ESLintOptionsPanel_startup_measuring());
+
+        MEASURE.post(() -> {
+            final NodeRuntime.StartupTime startup = NodeRuntime.measureStartup(eslintPath);
+            final String text;
+
+            if (startup == null) {
+                text = Bundle.ESLintOptionsPanel_startup_failed();
+            } else if (startup.isCompileCache()) {
+                text = Bundle.ESLintOptionsPanel_startup_measured(startup.getWithoutCache(), startup.getWithCache());
+            } else {
+                text = Bundle.ESLintOptionsPanel_startup_unsupported(startup.getWithoutCache(), startup.getNodeVersion());
+            }
+
+            SwingUtilities.invokeLater(() -> {
+                panel.lblStartupTime.setText(text);
+                panel.btnMeasureStartup.setEnabled(panel.radEslintManualConfig.isSelected());
+            });
+        });
+    }
+
     private void toggleElements(boolean isManualConfigActive) {
         panel.lblEslintCli.setEnabled(isManualConfigActive);
         panel.txtEslintPath.setEnabled(isManualConfigActive);
@@ -131,6 +179,28 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
         panel.chbUseCustomConfig.setEnabled(isManualConfigActive);
         panel.lblEslintFileExtensionsRegEx.setEnabled(isManualConfigActive);
         panel.txtFileExtensionsRegEx.setEnabled(isManualConfigActive);
+        panel.btnMeasureStartup.setEnabled(isManualConfigActive);
+        panel.lblStartupTime.setEnabled(isManualConfigActive);
+        panel.chbLintUnsaved.setEnabled(isManualConfigActive);
+        panel.lblLintDelay.setEnabled(isManualConfigActive);
+        panel.spnLintDelay.setEnabled(isManualConfigActive);
+        panel.chbShardedScan.setEnabled(isManualConfigActive);
+        panel.lblScanShards.setEnabled(isManualConfigActive && panel.chbShardedScan.isSelected());
+        panel.spnScanShards.setEnabled(isManualConfigActive && panel.chbShardedScan.isSelected());
+        panel.chbUseDaemon.setEnabled(isManualConfigActive);
+        panel.lblMaxProcesses.setEnabled(isManualConfigActive);
+        panel.spnMaxProcesses.setEnabled(isManualConfigActive);
+        panel.chbNodeCompileCache.setEnabled(isManualConfigActive);
+        panel.lblNodeMaxOldSpaceSize.setEnabled(isManualConfigActive);
+        panel.spnNodeMaxOldSpaceSize.setEnabled(isManualConfigActive);
+        panel.lblNodeOptions.setEnabled(isManualConfigActive);
+        panel.txtNodeOptions.setEnabled(isManualConfigActive);
+        panel.lblEditorTimeout.setEnabled(isManualConfigActive);
+        panel.spnEditorTimeout.setEnabled(isManualConfigActive);
+        panel.lblFileTimeout.setEnabled(isManualConfigActive);
+        panel.spnFileTimeout.setEnabled(isManualConfigActive);
+        panel.lblScanTimeout.setEnabled(isManualConfigActive);
+        panel.spnScanTimeout.setEnabled(isManualConfigActive);
         panel.txtCustomConfigPath.setEnabled(panel.chbUseCustomConfig.isSelected() && panel.radEslintManualConfig.isSelected());
         panel.btnBrowseCustomConfig.setEnabled(panel.chbUseCustomConfig.isSelected() && panel.radEslintManualConfig.isSelected());
     }
@@ -148,6 +218,11 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
     @Override
     public void changedUpdate(DocumentEvent e) {
     }
+
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        changed();
+    }
     
     private Boolean validateFields() {
         return true;
@@ -173,6 +248,21 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
             
             panel.txtFileExtensionsRegEx.setText(optionsModel.getFileExtensionsRegExOption());
             panel.txtFileExtensionsRegEx.getDocument().addDocumentListener(this);
+
+            panel.btnMeasureStartup.addActionListener(this);
+
+            panel.chbLintUnsaved.addActionListener(this);
+            panel.spnLintDelay.addChangeListener(this);
+            panel.chbShardedScan.addActionListener(this);
+            panel.spnScanShards.addChangeListener(this);
+            panel.chbUseDaemon.addActionListener(this);
+            panel.spnMaxProcesses.addChangeListener(this);
+            panel.chbNodeCompileCache.addActionListener(this);
+            panel.spnNodeMaxOldSpaceSize.addChangeListener(this);
+            panel.txtNodeOptions.getDocument().addDocumentListener(this);
+            panel.spnEditorTimeout.addChangeListener(this);
+            panel.spnFileTimeout.addChangeListener(this);
+            panel.spnScanTimeout.addChangeListener(this);
         }
         
         return panel;
@@ -190,6 +280,19 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
     
     private void load() {
         getPanel();
+
+        panel.chbLintUnsaved.setSelected(optionsModel.getLintUnsavedOption());
+        panel.spnLintDelay.setValue(optionsModel.getLintDelayOption());
+        panel.chbShardedScan.setSelected(optionsModel.getShardedScanOption());
+        panel.spnScanShards.setValue(optionsModel.getScanShardsOption());
+        panel.chbUseDaemon.setSelected(optionsModel.getUseDaemonOption());
+        panel.spnMaxProcesses.setValue(optionsModel.getMaxProcessesOption());
+        panel.chbNodeCompileCache.setSelected(optionsModel.getNodeCompileCacheOption());
+        panel.spnNodeMaxOldSpaceSize.setValue(optionsModel.getNodeMaxOldSpaceSizeOption());
+        panel.txtNodeOptions.setText(optionsModel.getNodeOptionsOption());
+        panel.spnEditorTimeout.setValue(optionsModel.getEditorTimeoutOption());
+        panel.spnFileTimeout.setValue(optionsModel.getFileTimeoutOption());
+        panel.spnScanTimeout.setValue(optionsModel.getScanTimeoutOption());
         
         boolean isManualConfigActive = optionsModel.getESLintConfigOption().equals("manual");
 
@@ -211,12 +314,34 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
     
     private void store() {
         getPanel();
+
+        // Running daemons keep the node settings they were started with
+        final boolean restartDaemons = !panel.chbUseDaemon.isSelected()
+                || optionsModel.getNodeCompileCacheOption() != panel.chbNodeCompileCache.isSelected()
+                || optionsModel.getNodeMaxOldSpaceSizeOption() != intValue(panel.spnNodeMaxOldSpaceSize)
+                || !optionsModel.getNodeOptionsOption().equals(panel.txtNodeOptions.getText());
         
         optionsModel.setESLintConfigOption(panel.radBtnGroupEslintConfig.getSelection().getActionCommand());
         optionsModel.setESLintPathOption(panel.txtEslintPath.getText());
         optionsModel.setUseCustomConfigOption(panel.chbUseCustomConfig.isSelected());
         optionsModel.setCustomConfigPathOption(panel.txtCustomConfigPath.getText());
         optionsModel.setFileExtensionsRegExOption(panel.txtFileExtensionsRegEx.getText());
+        optionsModel.setLintUnsavedOption(panel.chbLintUnsaved.isSelected());
+        optionsModel.setLintDelayOption(intValue(panel.spnLintDelay));
+        optionsModel.setShardedScanOption(panel.chbShardedScan.isSelected());
+        optionsModel.setScanShardsOption(intValue(panel.spnScanShards));
+        optionsModel.setUseDaemonOption(panel.chbUseDaemon.isSelected());
+        optionsModel.setMaxProcessesOption(intValue(panel.spnMaxProcesses));
+        optionsModel.setNodeCompileCacheOption(panel.chbNodeCompileCache.isSelected());
+        optionsModel.setNodeMaxOldSpaceSizeOption(intValue(panel.spnNodeMaxOldSpaceSize));
+        optionsModel.setNodeOptionsOption(panel.txtNodeOptions.getText());
+        optionsModel.setEditorTimeoutOption(intValue(panel.spnEditorTimeout));
+        optionsModel.setFileTimeoutOption(intValue(panel.spnFileTimeout));
+        optionsModel.setScanTimeoutOption(intValue(panel.spnScanTimeout));
+
+        if (restartDaemons) {
+            RequestProcessor.getDefault().post(ESLint.getDefault()::stopDaemons);
+        }
     }
     
     private void fireChanged() {
@@ -224,6 +349,22 @@ public final class ESLintOptionsPanelController extends OptionsPanelController i
                 || !optionsModel.getESLintPathOption().equals(panel.txtEslintPath.getText())
                 || optionsModel.getUseCustomConfigOption() != panel.chbUseCustomConfig.isSelected()
                 || !optionsModel.getCustomConfigPathOption().equals(panel.txtCustomConfigPath.getText())
-                || !optionsModel.getFileExtensionsRegExOption().equals(panel.txtFileExtensionsRegEx.getText());
+                || !optionsModel.getFileExtensionsRegExOption().equals(panel.txtFileExtensionsRegEx.getText())
+                || optionsModel.getLintUnsavedOption() != panel.chbLintUnsaved.isSelected()
+                || optionsModel.getLintDelayOption() != intValue(panel.spnLintDelay)
+                || optionsModel.getShardedScanOption() != panel.chbShardedScan.isSelected()
+                || optionsModel.getScanShardsOption() != intValue(panel.spnScanShards)
+                || optionsModel.getUseDaemonOption() != panel.chbUseDaemon.isSelected()
+                || optionsModel.getMaxProcessesOption() != intValue(panel.spnMaxProcesses)
+                || optionsModel.getNodeCompileCacheOption() != panel.chbNodeCompileCache.isSelected()
+                || optionsModel.getNodeMaxOldSpaceSizeOption() != intValue(panel.spnNodeMaxOldSpaceSize)
+                || !optionsModel.getNodeOptionsOption().equals(panel.txtNodeOptions.getText())
+                || optionsModel.getEditorTimeoutOption() != intValue(panel.spnEditorTimeout)
+                || optionsModel.getFileTimeoutOption() != intValue(panel.spnFileTimeout)
+                || optionsModel.getScanTimeoutOption() != intValue(panel.spnScanTimeout);
+    }
+
+    private static int intValue(JSpinner spinner) {
+        return ((Number) spinner.getValue()).intValue();
     }
 }
@@ -45,6 +45,28 @@ final class ESLintPanel extends javax.swing.JPanel {
         radEslintDisable = new javax.swing.JRadioButton();
         radEslintManualConfig = new javax.swing.JRadioButton();
         radEslintAutomaticConfig = new javax.swing.JRadioButton();
+        btnMeasureStartup = new javax.swing.JButton();
+        lblStartupTime = new javax.swing.JLabel();
+        chbLintUnsaved = new javax.swing.JCheckBox();
+        lblLintDelay = new javax.swing.JLabel();
+        spnLintDelay = new javax.swing.JSpinner();
+        chbShardedScan = new javax.swing.JCheckBox();
+        lblScanShards = new javax.swing.JLabel();
+        spnScanShards = new javax.swing.JSpinner();
+        chbUseDaemon = new javax.swing.JCheckBox();
+        lblMaxProcesses = new javax.swing.JLabel();
+        spnMaxProcesses = new javax.swing.JSpinner();
+        chbNodeCompileCache = new javax.swing.JCheckBox();
+        lblNodeMaxOldSpaceSize = new javax.swing.JLabel();
+        spnNodeMaxOldSpaceSize = new javax.swing.JSpinner();
+        lblNodeOptions = new javax.swing.JLabel();
+        txtNodeOptions = new javax.swing.JTextField();
+        lblEditorTimeout = new javax.swing.JLabel();
+        spnEditorTimeout = new javax.swing.JSpinner();
+        lblFileTimeout = new javax.swing.JLabel();
+        spnFileTimeout = new javax.swing.JSpinner();
+        lblScanTimeout = new javax.swing.JLabel();
+        spnScanTimeout = new javax.swing.JSpinner();
 
         fileChooser.setDialogTitle(org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.fileChooser.dialogTitle")); // NOI18N
         fileChooser.setFileFilter(null);
@@ -119,6 +141,72 @@ final class ESLintPanel extends javax.swing.JPanel {
         org.openide.awt.Mnemonics.setLocalizedText(radEslintAutomaticConfig, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.radEslintAutomaticConfig.text")); // NOI18N
         radEslintAutomaticConfig.setActionCommand(org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.radEslintAutomaticConfig.actionCommand")); // NOI18N
 
+        org.openide.awt.Mnemonics.setLocalizedText(btnMeasureStartup, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.btnMeasureStartup.text")); // NOI18N
+        btnMeasureStartup.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblStartupTime, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblStartupTime.text")); // NOI18N
+        lblStartupTime.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(chbLintUnsaved, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.chbLintUnsaved.text")); // NOI18N
+        chbLintUnsaved.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblLintDelay, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblLintDelay.text")); // NOI18N
+        lblLintDelay.setEnabled(false);
+
+        spnLintDelay.setModel(new javax.swing.SpinnerNumberModel(300, 0, 10000, 50));
+        spnLintDelay.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(chbShardedScan, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.chbShardedScan.text")); // NOI18N
+        chbShardedScan.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblScanShards, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblScanShards.text")); // NOI18N
+        lblScanShards.setEnabled(false);
+
+        spnScanShards.setModel(new javax.swing.SpinnerNumberModel(0, 0, 64, 1));
+        spnScanShards.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(chbUseDaemon, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.chbUseDaemon.text")); // NOI18N
+        chbUseDaemon.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblMaxProcesses, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblMaxProcesses.text")); // NOI18N
+        lblMaxProcesses.setEnabled(false);
+
+        spnMaxProcesses.setModel(new javax.swing.SpinnerNumberModel(0, 0, 64, 1));
+        spnMaxProcesses.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(chbNodeCompileCache, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.chbNodeCompileCache.text")); // NOI18N
+        chbNodeCompileCache.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblNodeMaxOldSpaceSize, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblNodeMaxOldSpaceSize.text")); // NOI18N
+        lblNodeMaxOldSpaceSize.setEnabled(false);
+
+        spnNodeMaxOldSpaceSize.setModel(new javax.swing.SpinnerNumberModel(0, 0, 65536, 256));
+        spnNodeMaxOldSpaceSize.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblNodeOptions, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblNodeOptions.text")); // NOI18N
+        lblNodeOptions.setEnabled(false);
+
+        txtNodeOptions.setText(org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.txtNodeOptions.text")); // NOI18N
+        txtNodeOptions.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblEditorTimeout, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblEditorTimeout.text")); // NOI18N
+        lblEditorTimeout.setEnabled(false);
+
+        spnEditorTimeout.setModel(new javax.swing.SpinnerNumberModel(30, 0, 86400, 10));
+        spnEditorTimeout.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblFileTimeout, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblFileTimeout.text")); // NOI18N
+        lblFileTimeout.setEnabled(false);
+
+        spnFileTimeout.setModel(new javax.swing.SpinnerNumberModel(120, 0, 86400, 10));
+        spnFileTimeout.setEnabled(false);
+
+        org.openide.awt.Mnemonics.setLocalizedText(lblScanTimeout, org.openide.util.NbBundle.getMessage(ESLintPanel.class, "ESLintPanel.lblScanTimeout.text")); // NOI18N
+        lblScanTimeout.setEnabled(false);
+
+        spnScanTimeout.setModel(new javax.swing.SpinnerNumberModel(900, 0, 86400, 60));
+        spnScanTimeout.setEnabled(false);
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -163,6 +251,46 @@ final class ESLintPanel extends javax.swing.JPanel {
                                 .addComponent(lblEslintFileExtensionsRegEx)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
                                 .addComponent(txtFileExtensionsRegEx, javax.swing.GroupLayout.PREFERRED_SIZE, 191, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(btnMeasureStartup)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(lblStartupTime))
+                            .addComponent(chbLintUnsaved)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblLintDelay)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnLintDelay, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addComponent(chbShardedScan)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblScanShards)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnScanShards, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addComponent(chbUseDaemon)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblMaxProcesses)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnMaxProcesses, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addComponent(chbNodeCompileCache)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblNodeMaxOldSpaceSize)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnNodeMaxOldSpaceSize, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblNodeOptions)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(txtNodeOptions, javax.swing.GroupLayout.PREFERRED_SIZE, 191, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblEditorTimeout)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnEditorTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblFileTimeout)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnFileTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(lblScanTimeout)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                                .addComponent(spnScanTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
                             .addComponent(chbUseCustomConfig))
                         .addContainerGap())))
         );
@@ -196,7 +324,51 @@ final class ESLintPanel extends javax.swing.JPanel {
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(txtFileExtensionsRegEx, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(lblEslintFileExtensionsRegEx))
-                .addContainerGap(83, Short.MAX_VALUE))
+                .addGap(18, 18, 18)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(btnMeasureStartup)
+                    .addComponent(lblStartupTime))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(chbLintUnsaved)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblLintDelay)
+                    .addComponent(spnLintDelay, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(chbShardedScan)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblScanShards)
+                    .addComponent(spnScanShards, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(chbUseDaemon)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblMaxProcesses)
+                    .addComponent(spnMaxProcesses, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(chbNodeCompileCache)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblNodeMaxOldSpaceSize)
+                    .addComponent(spnNodeMaxOldSpaceSize, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblNodeOptions)
+                    .addComponent(txtNodeOptions, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblEditorTimeout)
+                    .addComponent(spnEditorTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblFileTimeout)
+                    .addComponent(spnFileTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblScanTimeout)
+                    .addComponent(spnScanTimeout, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addContainerGap(36, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
 
@@ -245,20 +417,42 @@ final class ESLintPanel extends javax.swing.JPanel {
     // Variables declaration - do not modify//GEN-BEGIN:variables
     public javax.swing.JButton btnBrowseCustomConfig;
     public javax.swing.JButton btnBrowseEslintPath;
+    public javax.swing.JButton btnMeasureStartup;
     public javax.swing.JButton btnSearchEslintPath;
+    public javax.swing.JCheckBox chbLintUnsaved;
+    public javax.swing.JCheckBox chbNodeCompileCache;
+    public javax.swing.JCheckBox chbShardedScan;
     public javax.swing.JCheckBox chbUseCustomConfig;
+    public javax.swing.JCheckBox chbUseDaemon;
     public javax.swing.JFileChooser fileChooser;
     public javax.swing.JLabel lblCustomConfig;
     public javax.swing.JLabel lblCustomConfigDescription;
+    public javax.swing.JLabel lblEditorTimeout;
     public javax.swing.JLabel lblEslintCli;
     public javax.swing.JLabel lblEslintFileExtensionsRegEx;
     public javax.swing.JLabel lblEslintPathDescription;
+    public javax.swing.JLabel lblFileTimeout;
+    public javax.swing.JLabel lblLintDelay;
+    public javax.swing.JLabel lblMaxProcesses;
+    public javax.swing.JLabel lblNodeMaxOldSpaceSize;
+    public javax.swing.JLabel lblNodeOptions;
+    public javax.swing.JLabel lblScanShards;
+    public javax.swing.JLabel lblScanTimeout;
+    public javax.swing.JLabel lblStartupTime;
     public javax.swing.ButtonGroup radBtnGroupEslintConfig;
     public javax.swing.JRadioButton radEslintAutomaticConfig;
     public javax.swing.JRadioButton radEslintDisable;
     public javax.swing.JRadioButton radEslintManualConfig;
+    public javax.swing.JSpinner spnEditorTimeout;
+    public javax.swing.JSpinner spnFileTimeout;
+    public javax.swing.JSpinner spnLintDelay;
+    public javax.swing.JSpinner spnMaxProcesses;
+    public javax.swing.JSpinner spnNodeMaxOldSpaceSize;
+    public javax.swing.JSpinner spnScanShards;
+    public javax.swing.JSpinner spnScanTimeout;
     public javax.swing.JTextField txtCustomConfigPath;
     public javax.swing.JTextField txtEslintPath;
     public javax.swing.JTextField txtFileExtensionsRegEx;
+    public javax.swing.JTextField txtNodeOptions;
     // End of variables declaration//GEN-END:variables
 }
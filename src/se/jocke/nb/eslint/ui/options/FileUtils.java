@@ -6,7 +6,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.netbeans.api.annotations.common.CheckForNull;
@@ -23,6 +25,9 @@ public final class FileUtils {
 
     public static final File TMP_DIR = new File(System.getProperty("java.io.tmpdir")); // NOI18N
 
+    // PATH of the IDE process does not change, only the files on it
+    private static final Map<String, List<String>> FOUND_ON_PATH = new ConcurrentHashMap<>();
+
     private FileUtils() {
     }
 
@@ -45,7 +50,8 @@ public final class FileUtils {
      * Find all the files (absolute path) with the given "filename" on user's
      * PATH.
      * <p>
-     * This method is suitable for *nix as well as windows.
+     * This method is suitable for *nix as well as windows. Found files are
+     * remembered as long as they exist, nothing found is looked up again.
      *
      * @param filenames the name of a file to find, more names can be provided.
      * @return list of absolute paths of found files (order preserved according
@@ -55,6 +61,25 @@ public final class FileUtils {
     public static List<String> findFileOnUsersPath(String... filenames) {
         Parameters.notNull("filenames", filenames); // NOI18N
 
+        final String key = String.join(File.pathSeparator, filenames);
+        final List<String> cached = FOUND_ON_PATH.get(key);
+
+        if (cached != null && cached.stream().allMatch(file -> new File(file).isFile())) {
+            return cached;
+        }
+
+        final List<String> found = Collections.unmodifiableList(searchUsersPath(filenames));
+
+        if (found.isEmpty()) {
+            FOUND_ON_PATH.remove(key);
+        } else {
+            FOUND_ON_PATH.put(key, found);
+        }
+
+        return found;
+    }
+
+    private static List<String> searchUsersPath(String... filenames) {
         String path = System.getenv("PATH"); // NOI18N
         LOGGER.log(Level.FINE, "PATH: [{0}]", path);
         if (path == null) {
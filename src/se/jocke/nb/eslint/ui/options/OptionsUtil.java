@@ -16,8 +16,6 @@ public class OptionsUtil {
             return false;
         }
 
-        String lintRegExp = ESLintOptionsModel.getDefault().getFileExtensionsRegExOption();
-
-        return (lintRegExp != null && file.getNameExt().matches(lintRegExp));
+        return ESLintOptionsModel.getDefault().getSnapshot().isLintedFile(file.getNameExt());
     }
 }
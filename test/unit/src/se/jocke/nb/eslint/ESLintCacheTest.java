@@ -0,0 +1,72 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldKeepCacheWhileSetupIsUnchanged() throws IOException {
+        File cache = ESLintCache.get(folder.getRoot(), "/project", "", "eslint\08.1.0");
+        Files.write(cache.toPath(), new byte[]{1});
+
+        assertEquals(cache, ESLintCache.get(folder.getRoot(), "/project", "", "eslint\08.1.0"));
+        assertTrue(cache.exists());
+    }
+
+    @Test
+    public void shouldClearCacheWhenSetupChanges() throws IOException {
+        File cache = ESLintCache.get(folder.getRoot(), "/project", "", "eslint\08.1.0");
+        Files.write(cache.toPath(), new byte[]{1});
+
+        assertEquals(cache, ESLintCache.get(folder.getRoot(), "/project", "", "eslint\08.2.0"));
+        assertFalse(cache.exists());
+    }
+
+    @Test
+    public void shouldUseOneCachePerProject() {
+        assertNotEquals(ESLintCache.get(folder.getRoot(), "/a", "", ""), ESLintCache.get(folder.getRoot(), "/b", "", ""));
+    }
+
+    @Test
+    public void shouldUseOneCachePerShard() {
+        assertNotEquals(ESLintCache.get(folder.getRoot(), "/a", "", ""), ESLintCache.get(folder.getRoot(), "/a", "shard1of2", ""));
+    }
+
+    @Test
+    public void shouldGiveCacheToOneRunAtATime() {
+        File cache = ESLintCache.get(folder.getRoot(), "/project", "", "");
+
+        assertTrue(ESLintCache.acquire(cache));
+        assertFalse(ESLintCache.acquire(ESLintCache.get(folder.getRoot(), "/project", "", "")));
+        assertTrue(ESLintCache.acquire(ESLintCache.get(folder.getRoot(), "/project", "shard1of2", "")));
+
+        ESLintCache.release(cache);
+
+        assertTrue(ESLintCache.acquire(cache));
+        ESLintCache.release(cache);
+        ESLintCache.release(ESLintCache.get(folder.getRoot(), "/project", "shard1of2", ""));
+    }
+
+    @Test
+    public void shouldUseContentStrategyFromESLint721() {
+        assertFalse(ESLintCache.supportsContentStrategy(""));
+        assertFalse(ESLintCache.supportsContentStrategy("6.8.0"));
+        assertFalse(ESLintCache.supportsContentStrategy("7.20.0"));
+        assertTrue(ESLintCache.supportsContentStrategy("7.21.0"));
+        assertTrue(ESLintCache.supportsContentStrategy("8.57.0"));
+        assertTrue(ESLintCache.supportsContentStrategy("9.0.0-rc.0"));
+    }
+}
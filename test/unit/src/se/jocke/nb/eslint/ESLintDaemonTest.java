@@ -0,0 +1,198 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+import se.jocke.nb.eslint.ui.options.FileUtils;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintDaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ESLintDaemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        List<String> node = FileUtils.findFileOnUsersPath("node", "node.exe");
+        assumeFalse("node not found", node.isEmpty());
+
+        File script = folder.newFile("stub-daemon.js");
+        try (InputStream in = getClass().getResourceAsStream("stub-daemon.js")) {
+            Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        daemon = new ESLintDaemon(node.get(0), Collections.singletonList(script.getAbsolutePath()), folder.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        if (daemon != null) {
+            daemon.stop();
+        }
+    }
+
+    @Test
+    public void shouldReportEveryRequestedFile() throws InterruptedException, ExecutionException {
+        CollectingReporter reporter = new CollectingReporter();
+
+        assertEquals(Integer.valueOf(0), daemon.verify(Arrays.asList("/a.js", "/b.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, reporter).get());
+        assertEquals(2, reporter.errors.size());
+        assertEquals("/b.js", reporter.errors.get(1).getFile());
+        assertEquals(Arrays.asList("/a.js", "/b.js"), reporter.files);
+        assertEquals(1, reporter.done);
+    }
+
+    @Test
+    public void shouldReuseTheWorkerBetweenRequests() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < 3; i++) {
+            CollectingReporter reporter = new CollectingReporter();
+            daemon.verify(Collections.singletonList("/a.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, reporter).get();
+            assertEquals(1, reporter.errors.size());
+        }
+    }
+
+    @Test
+    public void shouldRestartCrashedWorker() throws InterruptedException, ExecutionException {
+        CollectingReporter crashed = new CollectingReporter();
+        assertEquals(Integer.valueOf(1), daemon.verify(Collections.singletonList("/crash.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, crashed).get());
+        assertEquals(1, crashed.done);
+
+        CollectingReporter reporter = new CollectingReporter();
+        assertEquals(Integer.valueOf(0), daemon.verify(Collections.singletonList("/a.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, reporter).get());
+        assertEquals(1, reporter.errors.size());
+    }
+
+    @Test
+    public void shouldKillHangingWorkerOnTimeout() throws InterruptedException, ExecutionException {
+        CollectingReporter hanging = new CollectingReporter();
+        assertEquals(Integer.valueOf(1), daemon.verify(Arrays.asList("/a.js", "/hang.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 300, hanging).get());
+        assertEquals(Arrays.asList("/a.js"), hanging.files);
+        assertEquals(300, hanging.timedOut);
+        assertEquals(0, hanging.done);
+
+        CollectingReporter reporter = new CollectingReporter();
+        assertEquals(Integer.valueOf(0), daemon.verify(Collections.singletonList("/a.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, reporter).get());
+        assertEquals(1, reporter.done);
+    }
+
+    @Test
+    public void shouldStopWithoutWaitingForBusyWorker() throws Exception {
+        CollectingReporter reporter = new CollectingReporter();
+        Future<Integer> hanging = daemon.verify(Collections.singletonList("/hang.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, reporter);
+        daemon.verify(Collections.singletonList("/a.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, new CollectingReporter());
+
+        // Let the worker start and take the hanging request
+        Thread.sleep(500);
+        long started = System.nanoTime();
+        daemon.stop();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+        assertEquals(Integer.valueOf(1), hanging.get(5, TimeUnit.SECONDS));
+        assertEquals(1, reporter.done);
+
+        CollectingReporter queued = new CollectingReporter();
+        assertEquals(Integer.valueOf(1), daemon.verify(Collections.singletonList("/a.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, queued).get(5, TimeUnit.SECONDS));
+        assertTrue(queued.errors.isEmpty());
+    }
+
+    @Test
+    public void shouldTakeEditorRequestBeforeQueuedScan() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // Keeps the worker busy until it times out
+        daemon.verify(Collections.singletonList("/hang.js"), null, "", null, "", LintPriority.BACKGROUND, 500, new CollectingReporter());
+        Future<Integer> scan = daemon.verify(Collections.singletonList("/scan.js"), null, "", null, "", LintPriority.BACKGROUND, 0, new OrderReporter(order));
+        Future<Integer> editor = daemon.verify(Collections.singletonList("/editor.js"), null, "", null, "", LintPriority.OPEN_EDITOR, 0, new OrderReporter(order));
+
+        assertEquals(Integer.valueOf(0), scan.get(10, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(0), editor.get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("/editor.js", "/scan.js"), order);
+    }
+
+    @Test
+    public void shouldRestartWorkerWhenSetupChanges() throws Exception {
+        File config = folder.newFile(".eslintrc");
+        Files.write(config.toPath(), "semi".getBytes(StandardCharsets.UTF_8));
+
+        CollectingReporter before = new CollectingReporter();
+        daemon.verify(Collections.singletonList("/a.js"), null, config.getAbsolutePath(), null, "1", LintPriority.OPEN_EDITOR, 0, before).get();
+
+        Files.write(config.toPath(), "quotes".getBytes(StandardCharsets.UTF_8));
+
+        CollectingReporter unchanged = new CollectingReporter();
+        daemon.verify(Collections.singletonList("/a.js"), null, config.getAbsolutePath(), null, "1", LintPriority.OPEN_EDITOR, 0, unchanged).get();
+
+        CollectingReporter changed = new CollectingReporter();
+        daemon.verify(Collections.singletonList("/a.js"), null, config.getAbsolutePath(), null, "2", LintPriority.OPEN_EDITOR, 0, changed).get();
+
+        assertEquals("semi", before.errors.get(0).getMessage());
+        assertEquals("semi", unchanged.errors.get(0).getMessage());
+        assertEquals("quotes", changed.errors.get(0).getMessage());
+    }
+
+    private static class OrderReporter extends CollectingReporter {
+
+        private final List<String> order;
+
+        OrderReporter(List<String> order) {
+            this.order = order;
+        }
+
+        @Override
+        public void fileDone(String file) {
+            order.add(file);
+        }
+    }
+
+    private static class CollectingReporter implements ErrorReporter {
+
+        private final List<LintError> errors = new ArrayList<>();
+        private final List<String> files = new ArrayList<>();
+        private int done;
+        private long timedOut;
+
+        @Override
+        public void handle(LintError error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void fileDone(String file) {
+            files.add(file);
+        }
+
+        @Override
+        public void done() {
+            done++;
+        }
+
+        @Override
+        public void timedOut(long timeout) {
+            timedOut = timeout;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintExecutableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path eslintPackage;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.getRoot().toPath().toRealPath();
+        eslintPackage = Files.createDirectories(root.resolve("node_modules/eslint/bin"));
+        Files.write(eslintPackage.resolve("eslint.js"), "#!/usr/bin/env node".getBytes(StandardCharsets.UTF_8));
+        writePackage("8.57.0");
+        eslintPackage = eslintPackage.getParent();
+    }
+
+    @Test
+    public void shouldFindLocalPackageAboveWorkingDirectory() throws IOException {
+        Path project = Files.createDirectories(root.resolve("packages/app"));
+
+        assertEquals(eslintPackage, ESLintExecutable.findLocalPackage(project));
+    }
+
+    @Test
+    public void shouldPreferLocalPackageOverConfiguredCli() {
+        ESLintExecutable executable = ESLintExecutable.resolve("/usr/local/bin/eslint", root.toString());
+
+        assertEquals(eslintPackage, executable.getESLintPackage());
+        assertEquals("8.57.0", executable.getVersion());
+
+        if (executable.isDirect()) {
+            assertEquals(executable.getNode(), executable.getExecutable());
+            assertEquals(eslintPackage.resolve("bin/eslint.js").toString(), executable.getArguments().get(0));
+        } else {
+            assertEquals("/usr/local/bin/eslint", executable.getExecutable());
+        }
+    }
+
+    @Test
+    public void shouldResolveAgainWhenNodeModulesChange() throws IOException {
+        assertEquals("8.57.0", ESLintExecutable.resolve("eslint", root.toString()).getVersion());
+        assertSame(ESLintExecutable.resolve("eslint", root.toString()), ESLintExecutable.resolve("eslint", root.toString()));
+
+        File nodeModules = root.resolve("node_modules").toFile();
+        writePackage("9.1.0");
+        assertTrue(nodeModules.setLastModified(nodeModules.lastModified() - 10000));
+
+        assertEquals("9.1.0", ESLintExecutable.resolve("eslint", root.toString()).getVersion());
+    }
+
+    private void writePackage(String version) throws IOException {
+        Files.write(root.resolve("node_modules/eslint/package.json"),
+                ("{\"name\": \"eslint\", \"version\": \"" + version + "\", \"bin\": {\"eslint\": \"./bin/eslint.js\"}}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintOutputParserTest {
+
+    private static final String OUTPUT = "[{\"filePath\":\"/p/a.js\",\"messages\":["
+            + "{\"ruleId\":\"semi\",\"severity\":2,\"message\":\"Missing \\\"semicolon\\\" \\u00e4.\",\"line\":3,\"column\":10,\"endLine\":3,\"endColumn\":11,"
+            + "\"fix\":{\"range\":[20,20],\"text\":\";\"},\"suggestions\":[{\"desc\":\"x\",\"fix\":{\"range\":[1,2],\"text\":\"]}\"}}]},"
+            + "{\"fatal\":true,\"severity\":1,\"message\":\"Parsing error\",\"line\":7,\"column\":2}],"
+            + "\"errorCount\":1,\"source\":\"var a = \\\"}]\\\"\\n\"},"
+            + "{\"filePath\":\"/p/b.js\",\"messages\":[],\"errorCount\":0}]";
+
+    @Test
+    public void shouldDecodeEveryResult() {
+        List<String> files = new ArrayList<>();
+        List<LintError> errors = new ArrayList<>();
+
+        ESLintOutputParser parser = new ESLintOutputParser((file, result) -> {
+            files.add(file);
+            errors.addAll(result);
+        });
+        parser.parse(OUTPUT);
+
+        assertEquals(2, files.size());
+        assertEquals("/p/b.js", files.get(1));
+        assertEquals(2, errors.size());
+
+        LintError error = errors.get(0);
+        assertEquals("/p/a.js", error.getFile());
+        assertEquals("Missing \"semicolon\" \u00e4.", error.getMessage());
+        assertEquals(3, error.getLine());
+        assertEquals(10, error.getStartCol());
+        assertEquals(11, error.getEndCol());
+        assertEquals(2, error.getSeverity());
+
+        assertEquals("Parsing error", errors.get(1).getMessage());
+        assertEquals(2, errors.get(1).getEndCol());
+    }
+
+    @Test
+    public void shouldDecodeChunkedInput() {
+        char[] chars = OUTPUT.toCharArray();
+
+        for (int split = 1; split < chars.length; split++) {
+            List<LintError> errors = new ArrayList<>();
+            ESLintOutputParser parser = new ESLintOutputParser((file, result) -> errors.addAll(result));
+            parser.parse(chars, 0, split);
+            parser.parse(chars, split, chars.length - split);
+
+            assertEquals("Split at " + split, 2, errors.size());
+            assertEquals("Split at " + split, 10, errors.get(0).getStartCol());
+        }
+    }
+
+    @Test
+    public void shouldDecodeOneResultPerLine() {
+        List<String> files = new ArrayList<>();
+        ESLintOutputParser parser = new ESLintOutputParser((file, result) -> files.add(file));
+
+        parser.parse("{\"filePath\":\"/p/a.js\",\"messages\":[]}\n");
+        parser.parse("{\"messages\":[{\"message\":\"m\",\"line\":1,\"column\":1}],\"filePath\":\"/p/b.js\"}\n");
+
+        assertEquals(2, files.size());
+        assertEquals("/p/b.js", files.get(1));
+    }
+
+    @Test
+    public void shouldSetFileWhenPathFollowsMessages() {
+        List<LintError> errors = new ArrayList<>();
+        ESLintOutputParser parser = new ESLintOutputParser((file, result) -> errors.addAll(result));
+
+        parser.parse("[{\"messages\":[{\"message\":\"m\",\"line\":1,\"column\":1}],\"filePath\":\"/p/b.js\"}]");
+
+        assertEquals("/p/b.js", errors.get(0).getFile());
+    }
+
+    @Test
+    public void shouldDropWarningOfFileIgnoredByConfig() {
+        // .eslintrc.json with "ignorePatterns": ["generated/"] and the flat config of ESLint 9
+        String output = "[{\"filePath\":\"/p/generated/a.js\",\"messages\":[{\"fatal\":false,\"severity\":1,"
+                + "\"message\":\"File ignored because of a matching ignore pattern. Use \\\"--no-ignore\\\" to override.\"}],\"warningCount\":1},"
+                + "{\"filePath\":\"/p/generated/b.js\",\"messages\":[{\"ruleId\":null,\"fatal\":false,\"severity\":1,"
+                + "\"message\":\"File ignored because no matching configuration was supplied.\",\"nodeType\":null}],\"warningCount\":1},"
+                + "{\"filePath\":\"/p/src/c.js\",\"messages\":[{\"ruleId\":\"no-restricted-syntax\",\"severity\":2,\"message\":\"File ignored is not a name.\",\"line\":1,\"column\":1},"
+                + "{\"fatal\":true,\"severity\":2,\"message\":\"File ignored? Parsing error\",\"line\":2,\"column\":1}]}]";
+        List<String> files = new ArrayList<>();
+        List<LintError> errors = new ArrayList<>();
+
+        ESLintOutputParser parser = new ESLintOutputParser((file, result) -> {
+            files.add(file);
+            errors.addAll(result);
+        });
+        parser.parse(output);
+
+        assertEquals(3, files.size());
+        assertEquals(2, errors.size());
+        assertEquals("/p/src/c.js", errors.get(0).getFile());
+        assertEquals(2, errors.get(1).getLine());
+    }
+}
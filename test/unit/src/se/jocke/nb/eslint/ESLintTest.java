@@ -1,7 +1,15 @@
 package se.jocke.nb.eslint;
 
 import java.beans.PropertyVetoException;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +19,7 @@ import org.junit.rules.TemporaryFolder;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.LocalFileSystem;
 import se.jocke.nb.eslint.task.ESLintIgnore;
+import se.jocke.nb.eslint.ui.options.ESLintOptionsModel;
 
 /**
  *
@@ -35,16 +44,74 @@ public class ESLintTest {
     }
 
     @Test
-    public void shouldIgnoreNoneGivenNoIgnoreFileFound() throws IOException {
-        ESLintIgnore ignore = ESLintIgnore.get(dir);
-        assertFalse(ignore.isIgnored(dir.createData("test", "js")));
+    public void shouldSplitPathsToStayWithinCommandLineLimit() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            paths.add(String.format("/project/src/file%03d.js", i));
+        }
+
+        List<List<String>> chunks = ESLint.chunk(paths, 50, 2000);
+
+        assertEquals(300, chunks.stream().mapToInt(List::size).sum());
+        assertEquals(paths.get(299), chunks.get(chunks.size() - 1).get(chunks.get(chunks.size() - 1).size() - 1));
+        for (List<String> chunk : chunks) {
+            assertTrue(50 + chunk.stream().mapToInt(path -> path.length() + 3).sum() <= 2000);
+        }
+    }
+
+    @Test
+    public void shouldKeepOverlongPathInOwnChunk() {
+        List<List<String>> chunks = ESLint.chunk(Arrays.asList("/a.js", "/very/long/path.js", "/b.js"), 0, 10);
+
+        assertEquals(3, chunks.size());
+        assertEquals(Collections.singletonList("/very/long/path.js"), chunks.get(1));
+    }
+
+    @Test
+    public void shouldKeepPathInSameShard() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            paths.add("/project/src/file" + i + ".js");
+        }
+
+        List<List<String>> shards = ESLint.shard(paths, 4);
+        List<String> reversed = new ArrayList<>(paths);
+        Collections.reverse(reversed);
+
+        assertEquals(4, shards.size());
+        assertEquals(100, shards.stream().mapToInt(List::size).sum());
+        for (List<String> shard : ESLint.shard(reversed, 4)) {
+            assertTrue(shards.stream().anyMatch(other -> other.containsAll(shard)));
+        }
+        assertEquals(1, ESLint.shard(paths.subList(0, 1), 4).size());
     }
 
     @Test
-    public void shouldIgnoreNodeModulesAlways() throws IOException {
-        ESLintIgnore ignore = ESLintIgnore.get(dir);
-        FileObject nodeModules = dir.createFolder("node_modules");
-        assertTrue(ignore.isIgnored(nodeModules.createData("test", "js")));
+    public void shouldListLintedFilesOutsideIgnoredDirectories() throws IOException {
+        writeIgnoreFile(dir, "dist/", "*.min.js");
+        dir.createData("index", "js");
+        dir.createData("README", "md");
+        dir.createData("lib.min", "js");
+        dir.createFolder("dist").createData("app", "js");
+        dir.createFolder("node_modules").createData("dep", "js");
+        dir.createFolder(".git").createData("hook", "js");
+        dir.createFolder("src").createData("app", "ts");
+
+        List<String> files = new ArrayList<>(ESLint.findLintedFiles(folder.getRoot().toPath(), ESLintIgnore.get(dir), ESLintOptionsModel.getDefault().getSnapshot()).keySet());
+        Collections.sort(files);
+
+        assertEquals(Arrays.asList(new File(folder.getRoot(), "index.js").getPath(), new File(folder.getRoot(), "src/app.ts").getPath()), files);
     }
 
+    private static void writeIgnoreFile(FileObject folder, String... lines) throws IOException {
+        FileObject ignoreFile = folder.getFileObject(".eslintignore");
+
+        if (ignoreFile == null) {
+            ignoreFile = folder.createData(".eslintignore");
+        }
+
+        try (Writer writer = new OutputStreamWriter(ignoreFile.getOutputStream(), StandardCharsets.UTF_8)) {
+            writer.write(String.join("\n", lines));
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class InFlightRunsTest {
+
+    private final AtomicInteger starts = new AtomicInteger();
+    private final List<ErrorReporter> shared = new ArrayList<>();
+    private final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    private final Map<Future<Integer>, LintPriority> raised = new HashMap<>();
+
+    private final Function<ErrorReporter, Future<Integer>> start = reporter -> {
+        starts.incrementAndGet();
+        shared.add(reporter);
+        futures.add(new CompletableFuture<>());
+        return futures.get(futures.size() - 1);
+    };
+
+    @Test
+    public void shouldShareRunOfSameKey() {
+        InFlightRuns runs = new InFlightRuns(raised::put);
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(first), start);
+        shared.get(0).handle(new LintError("/a.js", 1, 1, 2, 2, "Unexpected var"));
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(second), start);
+        shared.get(0).fileDone("/a.js");
+        shared.get(0).done();
+
+        assertEquals(1, starts.get());
+        assertEquals(Arrays.asList("Unexpected var", "fileDone /a.js", "done"), first);
+        assertEquals(first, second);
+        assertEquals(0, runs.size());
+    }
+
+    @Test
+    public void shouldStartRunPerKey() {
+        InFlightRuns runs = new InFlightRuns(raised::put);
+
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+        runs.join("a.js#2", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+
+        assertEquals(2, starts.get());
+    }
+
+    @Test
+    public void shouldStartAgainAfterDone() {
+        InFlightRuns runs = new InFlightRuns(raised::put);
+
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+        shared.get(0).done();
+        futures.get(0).complete(0);
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+
+        assertEquals(2, starts.get());
+    }
+
+    @Test
+    public void shouldCancelRunWithLastSubscriber() {
+        InFlightRuns runs = new InFlightRuns(raised::put);
+        List<String> kept = new ArrayList<>();
+
+        Future<Integer> first = runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+        Future<Integer> second = runs.join("a.js#1", LintPriority.BACKGROUND, reporter(kept), start);
+
+        assertTrue(first.cancel(true));
+        assertFalse(futures.get(0).isCancelled());
+
+        shared.get(0).fileDone("/a.js");
+        assertEquals(Arrays.asList("fileDone /a.js"), kept);
+
+        assertTrue(second.cancel(true));
+        assertTrue(futures.get(0).isCancelled());
+        assertEquals(0, runs.size());
+    }
+
+    @Test
+    public void shouldRaiseRunJoinedByMoreUrgentSubscriber() {
+        InFlightRuns runs = new InFlightRuns(raised::put);
+
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+        runs.join("a.js#1", LintPriority.EXPLICIT, reporter(new ArrayList<>()), start);
+        runs.join("a.js#1", LintPriority.BACKGROUND, reporter(new ArrayList<>()), start);
+
+        assertEquals(1, starts.get());
+        assertEquals(LintPriority.EXPLICIT, raised.get(futures.get(0)));
+
+        runs.join("a.js#1", LintPriority.OPEN_EDITOR, reporter(new ArrayList<>()), start);
+
+        assertEquals(LintPriority.OPEN_EDITOR, raised.get(futures.get(0)));
+    }
+
+    private static ErrorReporter reporter(List<String> calls) {
+        return new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                calls.add(error.getMessage());
+            }
+
+            @Override
+            public void fileDone(String file) {
+                calls.add("fileDone " + file);
+            }
+
+            @Override
+            public void done() {
+                calls.add("done");
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package se.jocke.nb.eslint;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.LocalFileSystem;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class LintDebouncerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileObject file;
+
+    @Before
+    public void setUp() throws PropertyVetoException, IOException {
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.setRootDirectory(folder.getRoot());
+        file = fs.getRoot().createData("test", "js");
+    }
+
+    @Test
+    public void shouldRunOnlyNewestRequestOfBurst() throws InterruptedException {
+        LintDebouncer debouncer = new LintDebouncer();
+        List<Integer> runs = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        for (int i = 0; i < 10; i++) {
+            final int request = i;
+            debouncer.schedule(file, () -> {
+                runs.add(request);
+                latch.countDown();
+                return CompletableFuture.completedFuture(0);
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(500);
+        assertEquals(1, runs.size());
+        assertEquals(Integer.valueOf(9), runs.get(0));
+    }
+
+    @Test
+    public void shouldDropCancelledRequest() throws InterruptedException {
+        LintDebouncer debouncer = new LintDebouncer();
+        List<Integer> runs = new CopyOnWriteArrayList<>();
+
+        debouncer.schedule(file, () -> {
+            runs.add(1);
+            return CompletableFuture.completedFuture(0);
+        });
+        debouncer.cancel(file);
+
+        Thread.sleep(800);
+        assertTrue(runs.isEmpty());
+    }
+
+    @Test
+    public void shouldCancelSupersededRun() {
+        LintDebouncer debouncer = new LintDebouncer();
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        CompletableFuture<Integer> second = new CompletableFuture<>();
+
+        debouncer.run(file, () -> first);
+        debouncer.run(file, () -> second);
+
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+
+        debouncer.cancel(file);
+        assertTrue(second.isCancelled());
+    }
+}
@@ -0,0 +1,73 @@
+package se.jocke.nb.eslint;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class LintRunTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void shouldReportTimeoutWhenStoppingEndsOutput() throws InterruptedException {
+        LintRun run = new LintRun(reporter(), 50);
+        run.start(new CompletableFuture<>());
+        // Killing the process closes its output, which reports done
+        run.started(() -> run.reporter().done());
+
+        awaitCall();
+
+        assertEquals(Collections.singletonList("timedOut 50"), calls);
+        assertTrue(run.isTimedOut());
+    }
+
+    @Test
+    public void shouldReportDoneWithinTimeout() throws InterruptedException {
+        LintRun run = new LintRun(reporter(), 50);
+        run.start(new CompletableFuture<>());
+        run.started(() -> fail("Stopped after done"));
+        run.reporter().done();
+
+        Thread.sleep(200);
+
+        assertEquals(Collections.singletonList("done"), calls);
+        assertFalse(run.isTimedOut());
+    }
+
+    private void awaitCall() throws InterruptedException {
+        for (int i = 0; i < 100 && calls.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Give a late done the chance to arrive
+        Thread.sleep(50);
+    }
+
+    private ErrorReporter reporter() {
+        return new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                calls.add(error.getMessage());
+            }
+
+            @Override
+            public void done() {
+                calls.add("done");
+            }
+
+            @Override
+            public void timedOut(long timeout) {
+                calls.add("timedOut " + timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package se.jocke.nb.eslint;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.LocalFileSystem;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class LintSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<String> started = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<Integer>> runs = new ConcurrentHashMap<>();
+
+    private FileObject focused;
+    private FileObject other;
+
+    @Before
+    public void setUp() throws PropertyVetoException, IOException {
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.setRootDirectory(folder.getRoot());
+        focused = fs.getRoot().createData("focused", "js");
+        other = fs.getRoot().createData("other", "js");
+    }
+
+    @Test
+    public void shouldKeepSlotForEditors() throws InterruptedException {
+        LintScheduler scheduler = new LintScheduler(() -> 2, focused::equals);
+
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan1"));
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan2"));
+        scheduler.submit(LintPriority.OPEN_EDITOR, other, run("editor"));
+
+        assertEquals("scan1", nextStarted());
+        assertEquals("editor", nextStarted());
+        assertEquals(1, scheduler.getQueued());
+
+        runs.get("editor").complete(0);
+        assertNull(started.poll(200, TimeUnit.MILLISECONDS));
+
+        runs.get("scan1").complete(0);
+        assertEquals("scan2", nextStarted());
+    }
+
+    @Test
+    public void shouldStartRaisedRunInEditorSlot() throws InterruptedException {
+        LintScheduler scheduler = new LintScheduler(() -> 2, focused::equals);
+
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan1"));
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan2"));
+        Future<Integer> joined = scheduler.submit(LintPriority.BACKGROUND, other, run("joined"));
+
+        assertEquals("scan1", nextStarted());
+        assertNull(started.poll(200, TimeUnit.MILLISECONDS));
+
+        scheduler.raise(joined, LintPriority.OPEN_EDITOR);
+
+        assertEquals("joined", nextStarted());
+        assertEquals(1, scheduler.getQueued());
+    }
+
+    @Test
+    public void shouldStartFocusedEditorFirst() throws InterruptedException {
+        LintScheduler scheduler = new LintScheduler(() -> 1, focused::equals);
+
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan"));
+        assertEquals("scan", nextStarted());
+
+        scheduler.submit(LintPriority.BACKGROUND, null, run("changed"));
+        scheduler.submit(LintPriority.EXPLICIT, null, run("explicit"));
+        scheduler.submit(LintPriority.OPEN_EDITOR, other, run("other"));
+        scheduler.submit(LintPriority.OPEN_EDITOR, focused, run("focused"));
+
+        runs.get("scan").complete(0);
+        assertEquals("focused", nextStarted());
+        runs.get("focused").complete(0);
+        assertEquals("other", nextStarted());
+        runs.get("other").complete(0);
+        assertEquals("explicit", nextStarted());
+        runs.get("explicit").complete(0);
+        assertEquals("changed", nextStarted());
+    }
+
+    @Test
+    public void shouldDropCancelledQueuedRun() throws Exception {
+        LintScheduler scheduler = new LintScheduler(() -> 1, focused::equals);
+
+        Future<Integer> scan = scheduler.submit(LintPriority.BACKGROUND, null, run("scan"));
+        Future<Integer> queued = scheduler.submit(LintPriority.BACKGROUND, null, run("queued"));
+        assertEquals("scan", nextStarted());
+
+        assertTrue(queued.cancel(true));
+        assertEquals(0, scheduler.getQueued());
+
+        runs.get("scan").complete(3);
+
+        assertEquals(Integer.valueOf(3), scan.get(5, TimeUnit.SECONDS));
+        assertNull(started.poll(200, TimeUnit.MILLISECONDS));
+        assertTrue(queued.isCancelled());
+    }
+
+    @Test
+    public void shouldCollapseFileRunsWhenQueueIsLong() throws Exception {
+        LintScheduler scheduler = new LintScheduler(() -> 1, focused::equals);
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        Map<String, List<String>> reported = new ConcurrentHashMap<>();
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        scheduler.submit(LintPriority.BACKGROUND, null, run("scan"));
+        assertEquals("scan", nextStarted());
+
+        for (int i = 0; i < LintScheduler.COLLAPSE_THRESHOLD + 4; i++) {
+            String path = "/project/file" + i + ".js";
+            futures.add(scheduler.submit(LintPriority.BACKGROUND, null, "/project", path, reporter(path, reported), (paths, reporter) -> {
+                batches.add(paths);
+                paths.forEach(file -> {
+                    reporter.handle(new LintError(file, 1, 1, 2, 2, "error"));
+                    reporter.fileDone(file);
+                });
+                reporter.done();
+                return CompletableFuture.completedFuture(1);
+            }));
+        }
+
+        assertEquals(LintScheduler.COLLAPSE_THRESHOLD, scheduler.getQueued());
+        futures.get(LintScheduler.COLLAPSE_THRESHOLD + 1).cancel(true);
+
+        runs.get("scan").complete(0);
+
+        assertEquals(Arrays.asList("/project/file0.js", "/project/file8.js", "/project/file10.js", "/project/file11.js"), batches.poll(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), futures.get(LintScheduler.COLLAPSE_THRESHOLD).get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("handle", "fileDone", "done"), reported.get("/project/file10.js"));
+        assertNull(reported.get("/project/file9.js"));
+        assertTrue(futures.get(LintScheduler.COLLAPSE_THRESHOLD + 1).isCancelled());
+    }
+
+    private static ErrorReporter reporter(String path, Map<String, List<String>> reported) {
+        return new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                assertEquals(path, error.getFile());
+                calls().add("handle");
+            }
+
+            @Override
+            public void fileDone(String file) {
+                assertEquals(path, file);
+                calls().add("fileDone");
+            }
+
+            @Override
+            public void done() {
+                calls().add("done");
+            }
+
+            private List<String> calls() {
+                return reported.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>());
+            }
+        };
+    }
+
+    private Supplier<Future<Integer>> run(String name) {
+        runs.put(name, new CompletableFuture<>());
+
+        return () -> {
+            started.add(name);
+            return runs.get(name);
+        };
+    }
+
+    private String nextStarted() throws InterruptedException {
+        return started.poll(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,40 @@
+package se.jocke.nb.eslint;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ *
+ * @author jocke
+ */
+public class NodeRuntimeTest {
+
+    @Test
+    public void shouldAppendToInheritedNodeOptions() {
+        assertEquals("--inspect --max-old-space-size=4096 --no-warnings", NodeRuntime.nodeOptions(" --inspect ", 4096, "--no-warnings"));
+    }
+
+    @Test
+    public void shouldLeaveNodeOptionsEmptyByDefault() {
+        assertEquals("", NodeRuntime.nodeOptions(null, 0, ""));
+        assertEquals("--max-old-space-size=2048", NodeRuntime.nodeOptions("", 2048, null));
+    }
+
+    @Test
+    public void shouldUseCompileCacheFromNode221() {
+        assertFalse(NodeRuntime.supportsCompileCache("v20.11.1"));
+        assertFalse(NodeRuntime.supportsCompileCache("v22.0.0"));
+        assertTrue(NodeRuntime.supportsCompileCache("v22.1.0"));
+        assertTrue(NodeRuntime.supportsCompileCache("v24.3.0"));
+        assertFalse(NodeRuntime.supportsCompileCache(""));
+    }
+
+    @Test
+    public void shouldReadVersionOfNode() {
+        String node = ESLintExecutable.findNode("eslint");
+        assumeNotNull(node);
+
+        assertTrue(NodeRuntime.version(node).matches("v\\d+\\.\\d+\\.\\d+.*"));
+    }
+}
@@ -0,0 +1,44 @@
+package se.jocke.nb.eslint;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.openide.util.Utilities;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ *
+ * @author jocke
+ */
+public class ProcessReaperTest {
+
+    @Test
+    public void shouldKillOrphanedProcesses() throws IOException, InterruptedException {
+        assumeFalse(Utilities.isWindows());
+
+        Process orphan = new ProcessBuilder("sleep", "60").start();
+        Process finished = new ProcessBuilder("true").start();
+        finished.waitFor();
+
+        ProcessReaper.register(finished, "true");
+        ProcessReaper.register(orphan, "sleep 60");
+
+        assertEquals(1, ProcessReaper.size());
+        assertEquals(1, ProcessReaper.reap());
+        assertTrue(orphan.waitFor(5, TimeUnit.SECONDS));
+        assertEquals(0, ProcessReaper.size());
+    }
+
+    @Test
+    public void shouldNotReportStoppedProcesses() throws IOException, InterruptedException {
+        assumeFalse(Utilities.isWindows());
+
+        Process stopped = new ProcessBuilder("sleep", "60").start();
+        ProcessReaper.register(stopped, "sleep 60");
+        ProcessReaper.unregister(stopped);
+
+        assertEquals(0, ProcessReaper.reap());
+        stopped.destroy();
+    }
+}
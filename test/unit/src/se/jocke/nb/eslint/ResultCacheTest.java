@@ -0,0 +1,90 @@
+package se.jocke.nb.eslint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import se.jocke.nb.eslint.error.ErrorReporter;
+import se.jocke.nb.eslint.error.FileResult;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ResultCacheTest {
+
+    @Test
+    public void shouldHitOnlyForSameContentAndFingerprint() {
+        ResultCache cache = new ResultCache(10);
+        FileResult result = FileResult.of("/a.js", Collections.singletonList(new LintError("/a.js", 1, 1, 2, 2, "Unexpected var")));
+
+        cache.put("/a.js", ResultCache.hash("var a"), "eslint", result, null);
+
+        assertSame(result, cache.get("/a.js", ResultCache.hash("var a"), "eslint", null));
+        assertNull(cache.get("/a.js", ResultCache.hash("var b"), "eslint", null));
+        assertNull(cache.get("/a.js", ResultCache.hash("var a"), "eslint\0/custom.json", null));
+        assertNull(cache.get("/b.js", ResultCache.hash("var a"), "eslint", null));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2);
+
+        cache.put("/a.js", 1, "", FileResult.empty("/a.js"), null);
+        cache.put("/b.js", 2, "", FileResult.empty("/b.js"), null);
+        assertNotNull(cache.get("/a.js", 1, "", null));
+        cache.put("/c.js", 3, "", FileResult.empty("/c.js"), null);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("/a.js", 1, "", null));
+        assertNull(cache.get("/b.js", 2, "", null));
+        assertNotNull(cache.get("/c.js", 3, "", null));
+    }
+
+    @Test
+    public void shouldRecordResultsOfHashedFilesOnly() {
+        ResultCache cache = new ResultCache(10);
+        Map<String, Long> hashes = new HashMap<>();
+        hashes.put("/a.js", 1L);
+        hashes.put("/b.js", 2L);
+        List<LintError> reported = new ArrayList<>();
+
+        ErrorReporter reporter = cache.recording(new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                reported.add(error);
+            }
+
+            @Override
+            public void done() {
+            }
+        }, null, hashes::get, "");
+
+        reporter.handle(new LintError("/a.js", 1, 1, 2, 1, "warning"));
+        reporter.handle(new LintError("/a.js", 2, 1, 2, 2, "error"));
+        reporter.fileDone("/a.js");
+        reporter.fileDone("/b.js");
+        reporter.handle(new LintError("/c.js", 1, 1, 2, 2, "error"));
+        reporter.fileDone("/c.js");
+        reporter.done();
+
+        assertEquals(3, reported.size());
+        assertEquals(2, cache.get("/a.js", 1, "", null).size());
+        assertTrue(cache.get("/b.js", 2, "", null).isEmpty());
+        assertNull(cache.get("/c.js", 3, "", null));
+    }
+
+    @Test
+    public void shouldHashLengthAndContent() {
+        assertEquals(ResultCache.hash("var a = 1"), ResultCache.hash("var a = 1"));
+        assertNotEquals(ResultCache.hash("var a = 1"), ResultCache.hash("var a = 2"));
+        assertNotEquals(ResultCache.hash(""), ResultCache.hash("\0"));
+    }
+}
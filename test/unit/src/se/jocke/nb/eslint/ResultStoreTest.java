@@ -0,0 +1,144 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openide.util.Utilities;
+import se.jocke.nb.eslint.error.FileResult;
+import se.jocke.nb.eslint.error.LintError;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ResultStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cache;
+    private String project;
+    private String file;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = folder.newFolder("cache");
+        project = folder.newFolder("project").getAbsolutePath();
+        file = folder.newFile("project/a.js").getAbsolutePath();
+    }
+
+    @Test
+    public void shouldReadResultsWrittenByAnotherSession() {
+        List<LintError> errors = Arrays.asList(
+                new LintError(file, 1, 1, 4, 2, "Unexpected var"),
+                new LintError(file, 2, 5, 5, 1, "Missing semicolon."),
+                new LintError(file, 3, 5, 5, 1, "Missing semicolon."));
+
+        ResultStore store = new ResultStore(cache.toPath(), project);
+        store.put(file, 42, "eslint", FileResult.of(file, errors));
+        store.flush();
+
+        ResultStore restarted = new ResultStore(cache.toPath(), project);
+        FileResult stored = restarted.get(file, 42, "eslint");
+
+        assertEquals(Collections.singleton(file), restarted.paths());
+        assertEquals(3, stored.size());
+        assertEquals(file, stored.get(1).getFile());
+        assertEquals(2, stored.get(1).getLine());
+        assertEquals(5, stored.get(1).getStartCol());
+        assertEquals(1, stored.get(1).getSeverity());
+        assertEquals("Missing semicolon.", stored.get(2).getMessage());
+        assertNull(restarted.get(file, 43, "eslint"));
+        assertNull(restarted.get(file, 42, "eslint\0/custom.json"));
+    }
+
+    @Test
+    public void shouldAppendToJournalAndDropRemovedFiles() throws IOException {
+        String other = folder.newFile("project/b.js").getAbsolutePath();
+        String third = folder.newFile("project/c.js").getAbsolutePath();
+
+        ResultStore store = new ResultStore(cache.toPath(), project);
+        store.put(file, 1, "", FileResult.empty(file));
+        store.put(other, 2, "", FileResult.empty(other));
+        store.put(third, 3, "", FileResult.empty(third));
+        store.flush();
+
+        store.remove(Collections.singleton(other));
+        store.put(file, 3, "", FileResult.of(file, Collections.singletonList(new LintError(file, 1, 1, 1, 2, "Unexpected var"))));
+        store.flush();
+
+        ResultStore restarted = new ResultStore(cache.toPath(), project);
+
+        assertEquals(new HashSet<>(Arrays.asList(file, third)), restarted.paths());
+        assertNull(restarted.get(file, 1, ""));
+        assertEquals("Unexpected var", restarted.get(file, 3, "").get(0).getMessage());
+        assertEquals(Arrays.asList("%s.1.bin", "%s.1.log"), names());
+    }
+
+    @Test
+    public void shouldCompactWhenMostEntriesAreSuperseded() throws IOException {
+        ResultStore store = new ResultStore(cache.toPath(), project);
+        store.put(file, 1, "", FileResult.empty(file));
+        store.flush();
+
+        for (int i = 2; i <= 3; i++) {
+            store.put(file, i, "", FileResult.empty(file));
+            store.flush();
+        }
+
+        ResultStore restarted = new ResultStore(cache.toPath(), project);
+
+        assertNotNull(restarted.get(file, 3, ""));
+
+        if (!Utilities.isWindows()) {
+            assertEquals(Collections.singletonList("%s.2.bin"), names());
+        }
+    }
+
+    @Test
+    public void shouldDropIncompleteJournalRecord() throws IOException {
+        String other = folder.newFile("project/b.js").getAbsolutePath();
+
+        ResultStore store = new ResultStore(cache.toPath(), project);
+        store.put(file, 1, "", FileResult.empty(file));
+        store.put(other, 1, "", FileResult.empty(other));
+        store.flush();
+
+        store.put(file, 2, "", FileResult.empty(file));
+        store.flush();
+
+        File journal = cache.listFiles((dir, name) -> name.endsWith(".log"))[0];
+        byte[] bytes = Files.readAllBytes(journal.toPath());
+        Files.write(journal.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        ResultStore restarted = new ResultStore(cache.toPath(), project);
+
+        assertNotNull(restarted.get(file, 1, ""));
+        assertNotNull(restarted.get(other, 1, ""));
+    }
+
+    @Test
+    public void shouldIgnoreStoreOfOtherProject() {
+        ResultStore store = new ResultStore(cache.toPath(), project);
+        store.put(file, 1, "", FileResult.empty(file));
+        store.flush();
+
+        assertTrue(new ResultStore(cache.toPath(), project + "2").paths().isEmpty());
+    }
+
+    private List<String> names() {
+        String prefix = cache.list()[0].substring(0, cache.list()[0].indexOf('.'));
+
+        return Arrays.stream(cache.list()).sorted().map(name -> name.replace(prefix, "%s")).collect(Collectors.toList());
+    }
+}
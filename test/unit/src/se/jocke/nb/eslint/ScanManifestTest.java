@@ -0,0 +1,79 @@
+package se.jocke.nb.eslint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ScanManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cache;
+    private String project;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = folder.newFolder("cache");
+        project = folder.newFolder("project").getAbsolutePath();
+    }
+
+    @Test
+    public void shouldReadManifestSavedByAnotherSession() {
+        Map<String, ScanManifest.FileState> files = new HashMap<>();
+        files.put("/project/a.js", new ScanManifest.FileState(10, 1000, 42));
+
+        new ScanManifest(cache.toPath(), project).save("eslint", files);
+        ScanManifest manifest = new ScanManifest(cache.toPath(), project);
+
+        assertEquals("eslint", manifest.getFingerprint());
+        assertEquals(Long.valueOf(42), manifest.hash("/project/a.js", 10, 1000));
+        assertEquals(Collections.singleton("/project/a.js"), manifest.paths());
+    }
+
+    @Test
+    public void shouldNotKnowHashOfChangedFile() {
+        ScanManifest manifest = new ScanManifest(cache.toPath(), project);
+        manifest.save("eslint", Collections.singletonMap("/project/a.js", new ScanManifest.FileState(10, 1000, 42)));
+
+        assertNull(manifest.hash("/project/a.js", 11, 1000));
+        assertNull(manifest.hash("/project/a.js", 10, 2000));
+        assertNull(manifest.hash("/project/b.js", 10, 1000));
+    }
+
+    @Test
+    public void shouldHashChangedFileFromDisk() throws IOException {
+        File file = new File(project, "a.js");
+        Files.write(file.toPath(), "var a".getBytes(StandardCharsets.UTF_8));
+        ScanManifest manifest = new ScanManifest(cache.toPath(), project);
+        manifest.save("eslint", Collections.singletonMap(file.getPath(), new ScanManifest.FileState(file.length(), file.lastModified(), 42)));
+
+        assertEquals(Long.valueOf(42), manifest.currentHash(file.getPath()));
+
+        Files.write(file.toPath(), "var ab".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Long.valueOf(ResultCache.hash("var ab")), manifest.currentHash(file.getPath()));
+        assertNull(manifest.currentHash(new File(project, "b.js").getPath()));
+    }
+
+    @Test
+    public void shouldStartEmptyWithoutManifest() {
+        ScanManifest manifest = new ScanManifest(cache.toPath(), project);
+
+        assertNull(manifest.getFingerprint());
+        assertTrue(manifest.paths().isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package se.jocke.nb.eslint.annotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Attach and detach calls per save of reconciling the annotations against
+ * detaching all of them and creating them again as before, for a file with
+ * many warnings and typical edits between two saves.
+ * <p>
+ * Run the main method with the test classpath, e.g. from the IDE.
+ *
+ * @author jocke
+ */
+public class AnnotationDiffBenchmark {
+
+    private static final String[] MESSAGES = {
+        "Missing semicolon.", "Strings must use singlequote.", "'x' is assigned a value but never used.",
+        "Unexpected var, use let or const instead.", "Expected '===' and instead saw '=='.", "Unexpected console statement."
+    };
+
+    private static final int LINES = 2000;
+    private static final int WARNINGS = 500;
+    private static final int SAVES = 1000;
+
+    public static void main(String[] args) {
+        final Random random = new Random(42);
+        List<ESLintAnnotation> attached = result(random, WARNINGS);
+        long before = 0;
+        long after = 0;
+        long nanos = 0;
+
+        for (int save = 0; save < SAVES; save++) {
+            final List<ESLintAnnotation> next = edit(random, attached);
+
+            final long start = System.nanoTime();
+            final AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(attached, next);
+            nanos += System.nanoTime() - start;
+
+            before += attached.size() + next.size();
+            after += diff.getOperations();
+            attached = next;
+        }
+
+        System.out.println(String.format("%d warnings, %d saves", WARNINGS, SAVES));
+        System.out.println(String.format("detach all and create: %8.1f operations per save", (double) before / SAVES));
+        System.out.println(String.format("reconcile:             %8.1f operations per save (%.1f%% saved)",
+                (double) after / SAVES, 100.0 * (before - after) / before));
+        System.out.println(String.format("diff time:             %8.1f us per save", nanos / 1000.0 / SAVES));
+    }
+
+    private static List<ESLintAnnotation> result(Random random, int warnings) {
+        final List<ESLintAnnotation> result = new ArrayList<>();
+
+        for (int i = 0; i < warnings; i++) {
+            result.add(warning(random));
+        }
+
+        return result;
+    }
+
+    /**
+     * A save fixes up to three problems, introduces up to two and otherwise
+     * leaves the result as it was.
+     */
+    private static List<ESLintAnnotation> edit(Random random, List<ESLintAnnotation> attached) {
+        final List<ESLintAnnotation> next = new ArrayList<>(attached);
+        final int fixed = random.nextInt(4);
+        final int introduced = random.nextInt(3);
+
+        for (int i = 0; i < fixed && !next.isEmpty(); i++) {
+            next.remove(random.nextInt(next.size()));
+        }
+
+        for (int i = 0; i < introduced; i++) {
+            next.add(warning(random));
+        }
+
+        return next;
+    }
+
+    private static ESLintAnnotation warning(Random random) {
+        final int column = 1 + random.nextInt(80);
+
+        return ESLintAnnotation.key(random.nextInt(5) == 0 ? "ERROR" : "WARNING", MESSAGES[random.nextInt(MESSAGES.length)],
+                1 + random.nextInt(LINES), column, column + 1 + random.nextInt(10));
+    }
+}
@@ -0,0 +1,52 @@
+package se.jocke.nb.eslint.annotation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class AnnotationDiffTest {
+
+    private final ESLintAnnotation semi = ESLintAnnotation.key("WARNING", "Missing semicolon.", 1, 10, 11);
+    private final ESLintAnnotation unused = ESLintAnnotation.key("ERROR", "'a' is unused.", 3, 5, 6);
+    private final ESLintAnnotation quotes = ESLintAnnotation.key("WARNING", "Strings must use singlequote.", 7, 1, 8);
+
+    @Test
+    public void shouldKeepUnchangedAnnotations() {
+        AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(Arrays.asList(semi, unused),
+                Arrays.asList(ESLintAnnotation.key("WARNING", "Missing semicolon.", 1, 10, 11), ESLintAnnotation.key("ERROR", "'a' is unused.", 3, 5, 6)));
+
+        assertEquals(2, diff.getKept());
+        assertEquals(0, diff.getOperations());
+    }
+
+    @Test
+    public void shouldDetachFixedAndCreateNewAnnotations() {
+        AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(Arrays.asList(semi, unused), Arrays.asList(unused, quotes));
+
+        assertEquals(Collections.singletonList(semi), diff.getRemoved());
+        assertEquals(Collections.singletonList(quotes), diff.getAdded());
+        assertEquals(1, diff.getKept());
+    }
+
+    @Test
+    public void shouldTellSeverityChangesApart() {
+        List<ESLintAnnotation> wanted = Collections.singletonList(ESLintAnnotation.key("ERROR", "Missing semicolon.", 1, 10, 11));
+        AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(Collections.singletonList(semi), wanted);
+
+        assertEquals(Collections.singletonList(semi), diff.getRemoved());
+        assertEquals(wanted, diff.getAdded());
+    }
+
+    @Test
+    public void shouldAnnotateDuplicatesOnce() {
+        AnnotationDiff<ESLintAnnotation> diff = AnnotationDiff.of(Collections.<ESLintAnnotation>emptyList(), Arrays.asList(semi, semi));
+
+        assertEquals(Collections.singletonList(semi), diff.getAdded());
+    }
+}
@@ -0,0 +1,107 @@
+package se.jocke.nb.eslint.annotation;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.text.Annotation;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class AnnotationRegistryTest {
+
+    private final AnnotationRegistry registry = new AnnotationRegistry();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger released = new AtomicInteger();
+    private FileObject file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = FileUtil.createMemoryFileSystem().getRoot().createData("a.js");
+    }
+
+    @Test
+    public void shouldRegisterFileOnce() {
+        AnnotationRegistry.Registration first = registry.register(file, registration -> created.incrementAndGet());
+        AnnotationRegistry.Registration second = registry.register(file, registration -> created.incrementAndGet());
+
+        assertSame(first, second);
+        assertSame(first, registry.get(file));
+        assertEquals(1, created.get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void shouldReleaseFile() {
+        AnnotationRegistry.Registration registration = registry.register(file, added -> added.onRelease(released::incrementAndGet));
+        registration.getAnnotations().add(ESLintAnnotation.key("WARNING", "Missing semicolon.", 1, 10, 11));
+
+        assertEquals(1, registry.annotationCount());
+        assertTrue(registry.release(file));
+        assertFalse(registry.release(file));
+
+        assertTrue(registration.isReleased());
+        assertTrue(registration.getAnnotations().isEmpty());
+        assertNull(registry.get(file));
+        assertEquals(0, registry.size());
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    public void shouldForgetAnnotationDetachedByEditor() {
+        AnnotationRegistry.Registration registration = registry.register(file, added -> {
+        });
+        DetachableAnnotation kept = new DetachableAnnotation();
+        DetachableAnnotation detached = new DetachableAnnotation();
+        registration.add(Arrays.asList(kept, detached));
+
+        detached.detached();
+
+        assertEquals(Collections.singleton(kept), registration.getAnnotations());
+    }
+
+    @Test
+    public void shouldRunHookAddedAfterRelease() {
+        AnnotationRegistry.Registration registration = registry.register(file, added -> {
+        });
+        registry.release(file);
+        registration.onRelease(released::incrementAndGet);
+
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    public void shouldRegisterAgainAfterRelease() {
+        AnnotationRegistry.Registration first = registry.register(file, registration -> created.incrementAndGet());
+        registry.release(file);
+        AnnotationRegistry.Registration second = registry.register(file, registration -> created.incrementAndGet());
+
+        assertNotSame(first, second);
+        assertFalse(second.isReleased());
+        assertEquals(2, created.get());
+    }
+
+    private static final class DetachableAnnotation extends Annotation {
+
+        @Override
+        public String getAnnotationType() {
+            return "se-jocke-nb-eslint-eslintwarnannotation";
+        }
+
+        @Override
+        public String getShortDescription() {
+            return "Missing semicolon.";
+        }
+
+        void detached() {
+            firePropertyChange(ESLintAnnotation.ATTACHED, true, false);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package se.jocke.nb.eslint.annotation;
+
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintAnnotationProviderTest {
+
+    @Test
+    public void shouldRestoreLineSeparatorOfFile() {
+        Document document = new PlainDocument();
+        document.putProperty(DefaultEditorKit.EndOfLineStringProperty, "\r\n");
+
+        assertEquals("var a = 1;\r\nvar b = 2;\r\n", ESLintAnnotationProvider.withLineSeparator(document, "var a = 1;\nvar b = 2;\n"));
+    }
+
+    @Test
+    public void shouldKeepTextOfFileWithNewlines() {
+        Document document = new PlainDocument();
+
+        assertEquals("var a = 1;\n", ESLintAnnotationProvider.withLineSeparator(document, "var a = 1;\n"));
+
+        document.putProperty(DefaultEditorKit.EndOfLineStringProperty, "\n");
+
+        assertEquals("var a = 1;\n", ESLintAnnotationProvider.withLineSeparator(document, "var a = 1;\n"));
+    }
+}
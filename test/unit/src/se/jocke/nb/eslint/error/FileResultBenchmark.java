@@ -0,0 +1,87 @@
+package se.jocke.nb.eslint.error;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Heap taken by the results of a large monorepo scan: 200k warnings in 4000
+ * files repeating 300 messages. Kept as before, a list of {@link LintError}
+ * per file with the path and message copied for every error as the parser
+ * used to, against {@link FileResult}s sharing pooled strings.
+ * <p>
+ * Run the main method with the test classpath, e.g. from the IDE.
+ *
+ * @author jocke
+ */
+public class FileResultBenchmark {
+
+    private static final int FILES = 4000;
+    private static final int MESSAGES = 300;
+    private static final int WARNINGS = 200_000;
+
+    public static void main(String[] args) {
+        final long empty = usedHeap();
+        final List<List<LintError>> lists = lists(new Random(42));
+        final long listsHeap = usedHeap() - empty;
+
+        System.out.println(String.format("%d warnings, %d files, %d messages", count(lists), lists.size(), MESSAGES));
+        System.out.println(String.format("List<LintError>: %8.1f MB, %5.1f bytes per warning", listsHeap / 1e6, (double) listsHeap / WARNINGS));
+
+        final List<FileResult> results = new ArrayList<>(lists.size());
+        lists.forEach(errors -> results.add(FileResult.of(errors.get(0).getFile(), errors)));
+        lists.clear();
+
+        final long resultsHeap = usedHeap() - empty;
+
+        System.out.println(String.format("FileResult:      %8.1f MB, %5.1f bytes per warning (%.1f%% saved)", resultsHeap / 1e6,
+                (double) resultsHeap / WARNINGS, 100.0 * (listsHeap - resultsHeap) / listsHeap));
+        System.out.println(String.format("pooled:          %d paths, %d messages", StringPool.paths().size(), StringPool.messages().size()));
+
+        // Keep the results reachable until measured
+        System.out.println(results.size() == FILES ? "" : "?");
+    }
+
+    private static List<List<LintError>> lists(Random random) {
+        final List<List<LintError>> lists = new ArrayList<>(FILES);
+
+        for (int file = 0; file < FILES; file++) {
+            lists.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < WARNINGS; i++) {
+            final int file = i < FILES ? i : random.nextInt(FILES);
+            final int column = 1 + random.nextInt(80);
+
+            // new String as the parser created them from the output
+            lists.get(file).add(new LintError(new String("/home/dev/monorepo/packages/app" + file % 40 + "/src/module" + file + ".js"),
+                    1 + random.nextInt(3000), column, column + 1 + random.nextInt(10), 1 + random.nextInt(2),
+                    new String("'identifier" + random.nextInt(MESSAGES) + "' is assigned a value but never used.")));
+        }
+
+        return lists;
+    }
+
+    private static int count(List<List<LintError>> lists) {
+        return lists.stream().mapToInt(List::size).sum();
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+}
@@ -0,0 +1,85 @@
+package se.jocke.nb.eslint.error;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class FileResultTest {
+
+    @Test
+    public void shouldKeepErrorsOfFile() {
+        FileResult result = FileResult.of("/a.js", Arrays.asList(
+                new LintError("/a.js", 1, 1, 4, 2, "Unexpected var"),
+                new LintError("/a.js", 2, 5, 6, 1, null)));
+
+        assertEquals("/a.js", result.getPath());
+        assertEquals(2, result.size());
+        assertEquals(2, result.getLine(1));
+        assertEquals(5, result.getStartCol(1));
+        assertEquals(6, result.getEndCol(1));
+        assertEquals(1, result.getSeverity(1));
+        assertNull(result.getMessage(1));
+        assertEquals("Unexpected var", result.get(0).getMessage());
+        assertEquals("/a.js", result.getErrors().get(1).getFile());
+        assertTrue(result.hasErrors());
+    }
+
+    @Test
+    public void shouldShareMessagesAndPaths() {
+        FileResult first = new FileResult.Builder(new String("/b.js")).add(1, 1, 2, 1, new String("Missing semicolon.")).build();
+        FileResult second = new FileResult.Builder(new String("/b.js")).add(3, 1, 2, 1, new String("Missing semicolon.")).build();
+
+        assertSame(first.getPath(), second.getPath());
+        assertSame(first.getMessage(0), second.getMessage(0));
+        assertSame(first.getMessage(0), StringPool.messages().intern(new String("Missing semicolon.")));
+    }
+
+    @Test
+    public void shouldGrowBuilder() {
+        FileResult.Builder builder = new FileResult.Builder("/c.js");
+
+        for (int i = 1; i <= 100; i++) {
+            builder.add(i, i, i + 1, 1, "'x" + i % 3 + "' is not defined.");
+        }
+
+        FileResult result = builder.build();
+
+        assertEquals(100, result.size());
+        assertEquals(100, result.getLine(99));
+        assertEquals("'x1' is not defined.", result.getMessage(0));
+        assertFalse(result.hasErrors());
+    }
+
+    @Test
+    public void shouldReportEveryError() {
+        FileResult result = FileResult.of("/d.js", Arrays.asList(
+                new LintError("/d.js", 1, 1, 2, 1, "a"),
+                new LintError("/d.js", 2, 1, 2, 1, "b")));
+        List<String> reported = new ArrayList<>();
+
+        result.report(new ErrorReporter() {
+            @Override
+            public void handle(LintError error) {
+                reported.add(error.getFile() + ":" + error.getLine() + " " + error.getMessage());
+            }
+
+            @Override
+            public void done() {
+            }
+        });
+
+        assertEquals(Arrays.asList("/d.js:1 a", "/d.js:2 b"), reported);
+        assertTrue(FileResult.empty("/d.js").isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectIndexOutsideResult() {
+        new FileResult.Builder("/e.js", 8).add(1, 1, 2, 1, "a").build().getLine(1);
+    }
+}
@@ -0,0 +1,77 @@
+package se.jocke.nb.eslint.error;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class StringPoolTest {
+
+    @Test
+    public void shouldShareEqualStrings() {
+        StringPool pool = new StringPool();
+        String first = pool.intern(new String("'foo' is defined but never used."));
+
+        assertSame(first, pool.intern(new String("'foo' is defined but never used.")));
+        assertNull(pool.intern(null));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void shouldShrinkWhenStringsAreNoLongerUsed() throws InterruptedException {
+        StringPool pool = new StringPool();
+        String kept = pool.intern(new String("'foo' is defined but never used."));
+
+        // Messages of a name typed halfway, not part of any result any more
+        for (int i = 0; i < 1000; i++) {
+            pool.intern("'f" + i + "' is defined but never used.");
+        }
+
+        for (int i = 0; i < 50 && pool.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, pool.size());
+        assertSame(kept, pool.intern(new String("'foo' is defined but never used.")));
+    }
+
+    @Test
+    public void shouldShareStringsInternedConcurrently() throws Exception {
+        StringPool pool = new StringPool();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String[]>> runs = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            runs.add(executor.submit(() -> {
+                String[] interned = new String[100];
+
+                for (int j = 0; j < interned.length; j++) {
+                    interned[j] = pool.intern(new String("Missing semicolon " + j));
+                }
+
+                return interned;
+            }));
+        }
+
+        String[] first = runs.get(0).get();
+
+        for (Future<String[]> run : runs) {
+            String[] interned = run.get();
+
+            for (int j = 0; j < interned.length; j++) {
+                assertSame(first[j], interned[j]);
+            }
+        }
+
+        executor.shutdown();
+        assertEquals(100, pool.size());
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Stands in for eslint-daemon.js in tests. Reports one warning per requested
+ * file and exits without answering when a file named crash.js is requested.
+ * A request with a file named hang.js is never answered. Like ESLint, it reads
+ * a config once and keeps it, the message is the content of the config, if
+ * any.
+ */
+'use strict';
+
+const fs = require('fs');
+const readline = require('readline');
+const configs = new Map();
+
+readline.createInterface({input: process.stdin}).on('line', line => {
+    const request = JSON.parse(line);
+
+    if (request.config && !configs.has(request.config)) {
+        configs.set(request.config, fs.readFileSync(request.config, 'utf8'));
+    }
+
+    const message = request.config ? configs.get(request.config) : 'Missing semicolon.';
+
+    for (const file of request.files) {
+        if (file.endsWith('crash.js')) {
+            process.exit(1);
+        }
+
+        if (file.endsWith('hang.js')) {
+            return;
+        }
+
+        process.stdout.write(JSON.stringify({
+            filePath: file,
+            messages: [{ruleId: 'semi', severity: 1, message, line: 1, column: 2, endColumn: 3}]
+        }) + '\n');
+    }
+
+    process.stdout.write(JSON.stringify({id: request.id, done: true}) + '\n');
+});
@@ -0,0 +1,82 @@
+package se.jocke.nb.eslint.task;
+
+import java.beans.PropertyVetoException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openide.filesystems.LocalFileSystem;
+
+/**
+ * Lookups per second of the ignore index against testing one glob
+ * {@link PathMatcher} per ignore line as before, for a typical mix of source,
+ * build output and node_modules paths.
+ * <p>
+ * Run the main method with the test classpath, e.g. from the IDE.
+ *
+ * @author jocke
+ */
+public class ESLintIgnoreBenchmark {
+
+    private static final List<String> LINES = Arrays.asList(
+            "dist/", "build/", "coverage/", "*.min.js", "!keep.min.js", "src/**/generated/*.js", "docs/**/*.js", "tmp/");
+
+    private static final String[] PATHS = {
+        "src/index.js", "src/components/App.jsx", "src/a/b/generated/api.js", "node_modules/lodash/lodash.js",
+        "node_modules/react/cjs/react.development.js", "dist/bundle.js", "lib/jquery.min.js", "packages/a/src/util.ts"
+    };
+
+    private static final int LOOKUPS = 5_000_000;
+
+    public static void main(String[] args) throws IOException, PropertyVetoException {
+        final File root = Files.createTempDirectory("eslintignore").toFile();
+        Files.write(new File(root, ".eslintignore").toPath(), LINES, StandardCharsets.UTF_8);
+
+        final LocalFileSystem fs = new LocalFileSystem();
+        fs.setRootDirectory(root);
+        final ESLintIgnore ignore = ESLintIgnore.get(fs.getRoot());
+
+        final List<PathMatcher> matchers = new ArrayList<>();
+        for (String line : LINES) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + (line.endsWith("/") ? line + "**/*" : line)));
+        }
+        matchers.add(FileSystems.getDefault().getPathMatcher("glob:node_modules/**/*"));
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int ignored = 0;
+
+            for (int i = 0; i < LOOKUPS; i++) {
+                Path path = Paths.get(PATHS[i % PATHS.length]);
+                for (PathMatcher matcher : matchers) {
+                    if (matcher.matches(path)) {
+                        ignored++;
+                        break;
+                    }
+                }
+            }
+
+            long matcherTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (ignore.isIgnored(PATHS[i % PATHS.length], false)) {
+                    ignored--;
+                }
+            }
+
+            long indexTime = System.nanoTime() - start;
+
+            System.out.printf("round %d: path matchers %.1fM lookups/s, ignore index %.1fM lookups/s (%d)%n",
+                    round, LOOKUPS * 1000.0 / matcherTime, LOOKUPS * 1000.0 / indexTime, ignored);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package se.jocke.nb.eslint.task;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.LocalFileSystem;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintIgnoreTest {
+
+    private FileObject dir;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws PropertyVetoException, IOException {
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.setRootDirectory(folder.getRoot());
+        dir = fs.getRoot();
+    }
+
+    @Test
+    public void shouldIgnoreNoneGivenNoIgnoreFileFound() throws IOException {
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+        assertFalse(ignore.isIgnored(dir.createData("test", "js")));
+    }
+
+    @Test
+    public void shouldIgnoreNodeModulesAlways() throws IOException {
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+        FileObject nodeModules = dir.createFolder("node_modules");
+        assertTrue(ignore.isIgnored(nodeModules.createData("test", "js")));
+    }
+
+    @Test
+    public void shouldIgnoreWholeIgnoredDirectory() throws IOException {
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+        FileObject nodeModules = dir.createFolder("node_modules");
+        FileObject nested = nodeModules.createFolder("lodash").createFolder("lib");
+
+        assertTrue(ignore.isIgnoredDirectory(nodeModules));
+        assertTrue(ignore.isIgnoredDirectory(nested));
+        assertTrue(ignore.isIgnored(nested.createData("index", "js")));
+        assertFalse(ignore.isIgnoredDirectory(dir.createFolder("src")));
+    }
+
+    @Test
+    public void shouldFollowIgnoreFileRules() throws IOException {
+        writeIgnoreFile(dir, "# build output", "dist/", "/coverage", "*.min.js", "!keep.min.js", "src/**/generated/*.js");
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+
+        assertTrue(ignore.isIgnored("dist", true));
+        assertTrue(ignore.isIgnored("dist/app.js", false));
+        assertTrue(ignore.isIgnored("packages/a/dist/app.js", false));
+        assertFalse(ignore.isIgnored("dist", false));
+        assertTrue(ignore.isIgnored("coverage/report.js", false));
+        assertFalse(ignore.isIgnored("packages/a/coverage/report.js", false));
+        assertTrue(ignore.isIgnored("lib/jquery.min.js", false));
+        assertFalse(ignore.isIgnored("lib/keep.min.js", false));
+        assertTrue(ignore.isIgnored("src/generated/api.js", false));
+        assertTrue(ignore.isIgnored("src/a/b/generated/api.js", false));
+        assertFalse(ignore.isIgnored("src/a/b/generated/api.ts", false));
+        assertFalse(ignore.isIgnored("src/index.js", false));
+        assertFalse(ignore.isIgnored("# build output", false));
+    }
+
+    @Test
+    public void shouldNotIncludeFilesOfIgnoredDirectory() throws IOException {
+        writeIgnoreFile(dir, "build/", "!build/keep.js");
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+
+        assertTrue(ignore.isIgnored("build/keep.js", false));
+    }
+
+    @Test
+    public void shouldApplyNestedIgnoreFileToItsFolder() throws IOException {
+        writeIgnoreFile(dir, "*.gen.js");
+        FileObject packageDir = dir.createFolder("packages").createFolder("a");
+        writeIgnoreFile(packageDir, "vendor/", "!api.gen.js");
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+
+        assertTrue(ignore.isIgnored("packages/a/vendor/x.js", false));
+        assertFalse(ignore.isIgnored("vendor/x.js", false));
+        assertFalse(ignore.isIgnored("packages/a/api.gen.js", false));
+        assertTrue(ignore.isIgnored("packages/a/other.gen.js", false));
+        assertTrue(ignore.isIgnored("api.gen.js", false));
+    }
+
+    @Test
+    public void shouldReloadChangedIgnoreFile() throws IOException {
+        writeIgnoreFile(dir, "a.js");
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+        assertTrue(ignore.isIgnored("a.js", false));
+
+        writeIgnoreFile(dir, "b.js");
+
+        assertFalse(ignore.isIgnored("a.js", false));
+        assertTrue(ignore.isIgnored("b.js", false));
+    }
+
+    @Test
+    public void shouldReloadIgnoreFileCreatedInNestedFolder() throws IOException {
+        FileObject packageDir = dir.createFolder("packages").createFolder("a");
+        ESLintIgnore ignore = ESLintIgnore.get(dir);
+        assertFalse(ignore.isIgnored("packages/a/vendor/x.js", false));
+
+        writeIgnoreFile(packageDir, "vendor/");
+
+        assertTrue(ignore.isIgnored("packages/a/vendor/x.js", false));
+    }
+
+    @Test
+    public void shouldReleaseUnusedIndex() throws Exception {
+        writeIgnoreFile(dir, "a.js");
+        WeakReference<ESLintIgnore> index = new WeakReference<>(ESLintIgnore.get(dir));
+        assertTrue(index.get().isIgnored("a.js", false));
+
+        for (int i = 0; i < 50 && index.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(index.get());
+        assertTrue(ESLintIgnore.get(dir).isIgnored("a.js", false));
+    }
+
+    private static void writeIgnoreFile(FileObject folder, String... lines) throws IOException {
+        FileObject ignoreFile = folder.getFileObject(".eslintignore");
+
+        if (ignoreFile == null) {
+            ignoreFile = folder.createData(".eslintignore");
+        }
+
+        try (Writer writer = new OutputStreamWriter(ignoreFile.getOutputStream(), StandardCharsets.UTF_8)) {
+            writer.write(String.join("\n", lines));
+        }
+    }
+}
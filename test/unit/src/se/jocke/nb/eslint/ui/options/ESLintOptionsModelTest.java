@@ -0,0 +1,58 @@
+package se.jocke.nb.eslint.ui.options;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author jocke
+ */
+public class ESLintOptionsModelTest {
+
+    private final ESLintOptionsModel model = ESLintOptionsModel.getDefault();
+
+    @After
+    public void tearDown() {
+        model.setFileExtensionsRegExOption(ESLintOptions.DEFAULT_FILE_EXTENSIONS_REGEX);
+        model.setESLintPathOption("");
+        model.setUseCustomConfigOption(false);
+    }
+
+    @Test
+    public void shouldMatchDefaultExtensions() {
+        ESLintOptions options = model.getSnapshot();
+
+        assertTrue(options.isLintedFile("index.js"));
+        assertTrue(options.isLintedFile("App.tsx"));
+        assertTrue(options.isLintedFile("App.vue"));
+        assertFalse(options.isLintedFile("index.json"));
+        assertFalse(options.isLintedFile("style.css"));
+    }
+
+    @Test
+    public void shouldReplaceSnapshotWhenOptionChanges() {
+        ESLintOptions before = model.getSnapshot();
+
+        model.setFileExtensionsRegExOption(".*\\.mjs$");
+        model.setESLintPathOption(" /usr/bin/eslint ");
+        model.setUseCustomConfigOption(true);
+        model.setCustomConfigPathOption("/home/.eslintrc.json");
+
+        ESLintOptions after = model.getSnapshot();
+
+        assertNotSame(before, after);
+        assertTrue(before.isLintedFile("index.js"));
+        assertFalse(after.isLintedFile("index.js"));
+        assertTrue(after.isLintedFile("index.mjs"));
+        assertEquals("/usr/bin/eslint", after.getESLintPath());
+        assertEquals("/home/.eslintrc.json", after.getConfig());
+    }
+
+    @Test
+    public void shouldFallBackToDefaultExtensionsOnInvalidPattern() {
+        model.setFileExtensionsRegExOption("*.js(");
+
+        assertTrue(model.getSnapshot().isLintedFile("index.js"));
+    }
+}
@@ -0,0 +1,50 @@
+package se.jocke.nb.eslint.ui.options;
+
+/**
+ * Per file event cost of deciding whether a file is linted, reading the
+ * preferences and matching with {@link String#matches(String)} as before
+ * against the precompiled pattern of the options snapshot.
+ * <p>
+ * Run the main method with the test classpath, e.g. from the IDE.
+ *
+ * @author jocke
+ */
+public class IsLintedFileBenchmark {
+
+    private static final String[] NAMES = {
+        "index.js", "App.tsx", "README.md", "package.json", "component.vue", "style.css", "util.ts", "logo.png"
+    };
+
+    private static final int EVENTS = 2_000_000;
+
+    public static void main(String[] args) {
+        final ESLintOptionsModel model = ESLintOptionsModel.getDefault();
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int matches = 0;
+
+            for (int i = 0; i < EVENTS; i++) {
+                String regex = model.getFileExtensionsRegExOption();
+                if (NAMES[i % NAMES.length].matches(regex)) {
+                    matches++;
+                }
+            }
+
+            long preferences = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            for (int i = 0; i < EVENTS; i++) {
+                if (model.getSnapshot().isLintedFile(NAMES[i % NAMES.length])) {
+                    matches--;
+                }
+            }
+
+            long snapshot = System.nanoTime() - start;
+
+            System.out.printf("round %d: preferences + String.matches %d ns/event, snapshot %d ns/event (%d)%n",
+                    round, preferences / EVENTS, snapshot / EVENTS, matches);
+        }
+    }
+}